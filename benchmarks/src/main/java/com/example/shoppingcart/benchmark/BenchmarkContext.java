@@ -0,0 +1,65 @@
+package com.example.shoppingcart.benchmark;
+
+import com.example.shoppingcart.ShoppingCartApplication;
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.repository.ProductRepository;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Boots the full application once per fork against an in-memory H2 database (profile "bench").
+@State(Scope.Benchmark)
+public class BenchmarkContext {
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(ShoppingCartApplication.class)
+                .run("--spring.profiles.active=bench");
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public WebApplicationContext webContext() {
+        return (WebApplicationContext) context;
+    }
+
+    public List<Product> createProducts(int count) {
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            products.add(new Product("Bench product " + i, "Benchmark product number " + i,
+                    1 + (i % 500) * 1.25, "https://example.com/images/" + i + ".jpg"));
+        }
+        return bean(ProductRepository.class).saveAll(products);
+    }
+
+    // Binds a fresh mock request to the calling thread so request-scoped beans resolve.
+    public ServletRequestAttributes bindRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest(webContext().getServletContext());
+        ServletRequestAttributes attributes = new ServletRequestAttributes(request, new MockHttpServletResponse());
+        RequestContextHolder.setRequestAttributes(attributes);
+        return attributes;
+    }
+}
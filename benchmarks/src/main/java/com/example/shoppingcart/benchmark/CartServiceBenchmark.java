@@ -0,0 +1,94 @@
+package com.example.shoppingcart.benchmark;
+
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.service.CartService;
+import jakarta.servlet.http.Cookie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Cart operations on a cart that already holds `lines` products. Each invocation runs
+// as a fresh request carrying the cart cookie, like a real page view would.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class CartServiceBenchmark {
+
+    @Param({"10", "100", "500"})
+    public int lines;
+
+    private BenchmarkContext app;
+    private CartService cartService;
+    private List<Product> products;
+    private Cookie cartCookie;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkContext app) {
+        this.app = app;
+        cartService = app.bean(CartService.class);
+        products = app.createProducts(lines);
+
+        ServletRequestAttributes attributes = app.bindRequest();
+        for (Product product : products) {
+            cartService.addToCart(product);
+        }
+        cartCookie = ((MockHttpServletResponse) attributes.getResponse()).getCookies()[0];
+        attributes.requestCompleted();
+    }
+
+    @Setup(Level.Invocation)
+    public void beginRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest(app.webContext().getServletContext());
+        request.setCookies(cartCookie);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, new MockHttpServletResponse()));
+    }
+
+    @TearDown(Level.Invocation)
+    public void endRequest() {
+        ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).requestCompleted();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public int cartBadgeCount() {
+        return cartService.getCartItemCount();
+    }
+
+    @Benchmark
+    public int addExistingProduct() {
+        cartService.addToCart(nextProduct());
+        return cartService.getCartItemCount();
+    }
+
+    @Benchmark
+    public int updateQuantity() {
+        Product product = nextProduct();
+        cartService.updateItemQuantity(product.getId(), 1 + (next % 5));
+        return cartService.getCartItemCount();
+    }
+
+    @Benchmark
+    public double cartTotal() {
+        return cartService.getCartTotal();
+    }
+
+    private Product nextProduct() {
+        next = (next + 1) % products.size();
+        return products.get(next);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.shoppingcart.benchmark;
+
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.ProductPage;
+import com.example.shoppingcart.model.ProductQuery;
+import com.example.shoppingcart.model.ProductSummary;
+import jakarta.servlet.ServletContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.support.RequestContext;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.spring6.naming.SpringContextVariableNames;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Renders index.html for `products` products through the application's template engine
+// for an anonymous visitor.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class IndexRenderBenchmark {
+
+    @Param({"1000"})
+    public int products;
+
+    private SpringTemplateEngine templateEngine;
+    private JakartaServletWebApplication webApplication;
+    private ServletContext servletContext;
+    private Map<String, Object> model;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkContext app) {
+        templateEngine = app.bean(SpringTemplateEngine.class);
+        servletContext = app.webContext().getServletContext();
+        webApplication = JakartaServletWebApplication.buildApplication(servletContext);
+
+        List<ProductSummary> listProducts = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            Product product = new Product("Product " + i, "Description of product " + i, 10 + i,
+                    "https://example.com/images/" + i + ".jpg");
+            product.setId((long) i + 1);
+            listProducts.add(ProductSummary.of(product));
+        }
+        model = new HashMap<>();
+        model.put("listProducts", listProducts);
+        model.put("page", new ProductPage(listProducts, true, (long) products, null));
+        model.put("query", new ProductQuery());
+        model.put("cartCount", 3);
+    }
+
+    @Benchmark
+    public String renderIndex() {
+        MockHttpServletRequest request = new MockHttpServletRequest(servletContext, "GET", "/");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Map<String, Object> variables = new HashMap<>(model);
+        variables.put(SpringContextVariableNames.SPRING_REQUEST_CONTEXT,
+                new RequestContext(request, response, servletContext, variables));
+        WebContext context = new WebContext(webApplication.buildExchange(request, response), Locale.US, variables);
+
+        StringWriter out = new StringWriter(256 * 1024);
+        templateEngine.process("index", context, out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.shoppingcart.benchmark;
+
+import org.springframework.boot.web.context.WebServerApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Closed-loop HTTP load generator for comparing the platform and virtual thread modes of a
+// running instance: <concurrency> clients send requests back to back for <seconds> seconds
+// (after a short warm-up) and the throughput and latency percentiles are printed.
+// {rand} in the url is replaced by a random number so requests miss the page caches.
+// Requests turned away by admission control (429/503) are counted apart from errors, and the
+// client waits for the Retry-After they came with before sending the next one.
+// A url that is only a path ("/api/products?afterId={rand}") boots the application in-process
+// against the in-memory H2 database (profile "bench") with <products> extra products, so
+// endpoints can be compared without a running instance or MySQL.
+public class LoadTest {
+
+    private static final int WARM_UP_SECONDS = 5;
+    private static final int DEFAULT_PRODUCTS = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("usage: LoadTest <url|path> <concurrency> <seconds> [products]");
+            System.exit(2);
+        }
+        String url = args[0];
+        int concurrency = Integer.parseInt(args[1]);
+        int seconds = Integer.parseInt(args[2]);
+
+        BenchmarkContext app = null;
+        if (url.startsWith("/")) {
+            int products = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_PRODUCTS;
+            app = new BenchmarkContext();
+            app.start();
+            app.createProducts(products);
+            int port = ((WebServerApplicationContext) app.webContext()).getWebServer().getPort();
+            url = "http://localhost:" + port + url;
+            System.out.printf("embedded application on port %d with %d extra products%n", port, products);
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        System.out.printf("%s: %d clients, %ds (+%ds warm-up)%n", url, concurrency, seconds, WARM_UP_SECONDS);
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(WARM_UP_SECONDS);
+        long measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        List<Client> results = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Client c = new Client(client, url, measureFrom, measureUntil);
+            results.add(c);
+            clients.execute(c);
+        }
+        clients.shutdown();
+        clients.awaitTermination(seconds + WARM_UP_SECONDS + 60, TimeUnit.SECONDS);
+
+        int count = 0;
+        int errors = 0;
+        int rejected = 0;
+        for (Client c : results) {
+            count += c.count;
+            errors += c.errors;
+            rejected += c.rejected;
+        }
+        long[] latencies = new long[count];
+        int offset = 0;
+        for (Client c : results) {
+            System.arraycopy(c.latencies, 0, latencies, offset, c.count);
+            offset += c.count;
+        }
+        Arrays.sort(latencies);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("requests: %d, errors: %d, rejected: %d, throughput: %.1f req/s (%.1f req/s per core, %d cores)%n",
+                count, errors, rejected, count / (double) seconds, count / (double) seconds / cores, cores);
+        if (count > 0) {
+            System.out.printf("latency ms: p50 %.1f, p90 %.1f, p99 %.1f, max %.1f%n",
+                    percentile(latencies, 0.50), percentile(latencies, 0.90),
+                    percentile(latencies, 0.99), latencies[count - 1] / 1e6);
+        }
+        if (app != null) {
+            app.stop();
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)))] / 1e6;
+    }
+
+    private static class Client implements Runnable {
+        private final HttpClient client;
+        private final String url;
+        private final long measureFrom;
+        private final long measureUntil;
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private int errors;
+        private int rejected;
+
+        Client(HttpClient client, String url, long measureFrom, long measureUntil) {
+            this.client = client;
+            this.url = url;
+            this.measureFrom = measureFrom;
+            this.measureUntil = measureUntil;
+        }
+
+        @Override
+        public void run() {
+            long start;
+            while ((start = System.nanoTime()) < measureUntil) {
+                String target = url.replace("{rand}", Integer.toString(ThreadLocalRandom.current().nextInt(1_000_000)));
+                int status;
+                long retryAfter = 0;
+                try {
+                    HttpResponse<Void> response = client.send(HttpRequest.newBuilder(URI.create(target)).build(),
+                            HttpResponse.BodyHandlers.discarding());
+                    status = response.statusCode();
+                    retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(0);
+                } catch (Exception e) {
+                    status = -1;
+                }
+                if (status == 429 || status == 503) {
+                    if (start >= measureFrom) {
+                        rejected++;
+                    }
+                    try {
+                        Thread.sleep(TimeUnit.SECONDS.toMillis(retryAfter));
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    continue;
+                }
+                if (start < measureFrom) {
+                    continue;
+                }
+                if (status < 0 || status >= 400) {
+                    errors++;
+                    continue;
+                }
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = System.nanoTime() - start;
+            }
+        }
+    }
+}
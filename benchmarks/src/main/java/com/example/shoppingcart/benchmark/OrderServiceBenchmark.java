@@ -0,0 +1,97 @@
+package com.example.shoppingcart.benchmark;
+
+import com.example.shoppingcart.model.CartItem;
+import com.example.shoppingcart.model.Order;
+import com.example.shoppingcart.model.OrderItem;
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.User;
+import com.example.shoppingcart.repository.OrderJdbcRepository;
+import com.example.shoppingcart.repository.OrderRepository;
+import com.example.shoppingcart.repository.UserRepository;
+import com.example.shoppingcart.service.OrderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Checkout cost by number of order lines. `createOrder` is the whole checkout: repricing, the
+// order row, its lines, stock, sales aggregates and the outbox event. `jdbcBatch` and
+// `jpaCascade` write only the order and its lines, through the current JDBC batch and the
+// previous cascading OrderItem inserts, so they compare the write paths like for like.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class OrderServiceBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int lines;
+
+    private OrderService orderService;
+    private OrderRepository orderRepository;
+    private OrderJdbcRepository orderJdbcRepository;
+    private TransactionTemplate transactionTemplate;
+    private User user;
+    private List<CartItem> cartItems;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkContext app) {
+        orderService = app.bean(OrderService.class);
+        orderRepository = app.bean(OrderRepository.class);
+        orderJdbcRepository = app.bean(OrderJdbcRepository.class);
+        transactionTemplate = app.bean(TransactionTemplate.class);
+        user = app.bean(UserRepository.class).findByUsername("user").orElseThrow();
+
+        // Products without a stock level, so repeated checkouts never run out
+        cartItems = new ArrayList<>(lines);
+        for (Product product : app.createProducts(lines)) {
+            cartItems.add(new CartItem(product, 2));
+        }
+    }
+
+    @Benchmark
+    public Order createOrder() {
+        return orderService.createOrder(user, cartItems);
+    }
+
+    @Benchmark
+    public Order jdbcBatch() {
+        return transactionTemplate.execute(status -> {
+            Order order = new Order(user, LocalDateTime.now(), "PENDING", 0);
+            List<OrderItem> orderItems = new ArrayList<>(cartItems.size());
+            double total = 0;
+            for (CartItem cartItem : cartItems) {
+                orderItems.add(new OrderItem(cartItem.getProduct(), cartItem.getQuantity(), cartItem.getProduct().getPrice()));
+                total += cartItem.getTotalPrice();
+            }
+            order.setTotalAmount(total);
+            Order saved = orderRepository.save(order);
+            orderJdbcRepository.insertItems(saved.getId(), orderItems);
+            return saved;
+        });
+    }
+
+    @Benchmark
+    public Order jpaCascade() {
+        return transactionTemplate.execute(status -> {
+            Order order = new Order(user, LocalDateTime.now(), "PENDING", 0);
+            double total = 0;
+            for (CartItem cartItem : cartItems) {
+                order.addItem(new OrderItem(cartItem.getProduct(), cartItem.getQuantity(), cartItem.getProduct().getPrice()));
+                total += cartItem.getTotalPrice();
+            }
+            order.setTotalAmount(total);
+            return orderRepository.save(order);
+        });
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.shoppingcart.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+// Password verifications per second on one thread, i.e. the login throughput one core of the
+// verification pool sustains for each hashing setting (app.security.password.*).
+// `encoder` is bcrypt:<strength> or argon2:<memory-kb>:<iterations>:<parallelism>.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Threads(1)
+public class PasswordEncoderBenchmark {
+
+    @Param({"bcrypt:10", "bcrypt:12", "argon2:19456:2:1", "argon2:65536:3:1"})
+    public String encoder;
+
+    private PasswordEncoder passwordEncoder;
+    private String hash;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] spec = encoder.split(":");
+        if (spec[0].equals("bcrypt")) {
+            passwordEncoder = new BCryptPasswordEncoder(Integer.parseInt(spec[1]));
+        } else {
+            passwordEncoder = new Argon2PasswordEncoder(16, 32, Integer.parseInt(spec[3]),
+                    Integer.parseInt(spec[1]), Integer.parseInt(spec[2]));
+        }
+        hash = passwordEncoder.encode("correct horse battery staple");
+    }
+
+    @Benchmark
+    public boolean verifyLogin() {
+        return passwordEncoder.matches("correct horse battery staple", hash);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.shoppingcart.benchmark;
+
+import com.example.shoppingcart.model.ExportFormat;
+import com.example.shoppingcart.model.ProductImportResult;
+import com.example.shoppingcart.service.ProductBulkService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Bulk import and export of `rows` products. Each import adds the same ids, which are deleted
+// again before every invocation, so the table (and the search index rebuilt after each import)
+// keeps its size. Ids start above FIRST_ID to stay clear of the demo products.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ProductBulkBenchmark {
+
+    private static final long FIRST_ID = 1_000_000;
+
+    @Param({"10000"})
+    public int rows;
+
+    private ProductBulkService productBulkService;
+    private byte[] ndjson;
+    private byte[] csv;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkContext app) {
+        productBulkService = app.bean(ProductBulkService.class);
+        StringBuilder json = new StringBuilder();
+        StringBuilder text = new StringBuilder("id,name,description,price,imageUrl,stock\n");
+        for (int i = 1; i <= rows; i++) {
+            double price = 1 + (i % 500) * 1.25;
+            json.append("{\"id\":").append(FIRST_ID + i).append(",\"name\":\"Bulk product ").append(i)
+                    .append("\",\"description\":\"Imported product number ").append(i)
+                    .append("\",\"price\":").append(price).append(",\"stock\":").append(i % 100).append("}\n");
+            text.append(FIRST_ID + i).append(",Bulk product ").append(i).append(",Imported product number ").append(i)
+                    .append(',').append(price).append(",,").append(i % 100).append('\n');
+        }
+        ndjson = json.toString().getBytes(StandardCharsets.UTF_8);
+        csv = text.toString().getBytes(StandardCharsets.UTF_8);
+        productBulkService.importProducts(new ByteArrayInputStream(ndjson), ExportFormat.NDJSON);
+    }
+
+    // Imports only add ids that do not exist yet (rows with an id and a version would replace
+    // instead), so the import benchmarks start from a table without them
+    @State(Scope.Benchmark)
+    public static class ImportedIdsDeleted {
+
+        @Setup(Level.Invocation)
+        public void deleteImported(BenchmarkContext app) {
+            app.bean(JdbcTemplate.class).update("DELETE FROM products WHERE id > ?", FIRST_ID);
+        }
+    }
+
+    @Benchmark
+    public ProductImportResult importNdjson(ImportedIdsDeleted ids) {
+        return productBulkService.importProducts(new ByteArrayInputStream(ndjson), ExportFormat.NDJSON);
+    }
+
+    @Benchmark
+    public ProductImportResult importCsv(ImportedIdsDeleted ids) {
+        return productBulkService.importProducts(new ByteArrayInputStream(csv), ExportFormat.CSV);
+    }
+
+    @Benchmark
+    public void exportNdjson() {
+        productBulkService.exportProducts(OutputStream.nullOutputStream(), ExportFormat.NDJSON);
+    }
+
+    @Benchmark
+    public void exportCsv() {
+        productBulkService.exportProducts(OutputStream.nullOutputStream(), ExportFormat.CSV);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.shoppingcart.benchmark;
+
+import com.example.shoppingcart.config.CacheConfig;
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.ProductPage;
+import com.example.shoppingcart.model.ProductQuery;
+import com.example.shoppingcart.model.ProductSearchResult;
+import com.example.shoppingcart.service.ProductSearchIndex;
+import com.example.shoppingcart.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Catalog listing against a `catalogSize` product table. The page caches are cleared
+// before each call unless `cached` is set, so the database path is what gets measured.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ProductServiceBenchmark {
+
+    @Param({"10000"})
+    public int catalogSize;
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private ProductService productService;
+    private ProductSearchIndex searchIndex;
+    private Cache pageCache;
+    private ProductQuery firstPage;
+    private ProductQuery deepPage;
+    private ProductQuery deepPriceFilteredPage;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkContext app) {
+        productService = app.bean(ProductService.class);
+        pageCache = app.bean(CacheManager.class).getCache(CacheConfig.PRODUCT_PAGES);
+        List<Product> products = app.createProducts(catalogSize);
+        // The products were inserted through the repository, so index them explicitly
+        searchIndex = app.bean(ProductSearchIndex.class);
+        searchIndex.rebuild();
+
+        firstPage = new ProductQuery();
+        deepPage = new ProductQuery();
+        deepPage.setAfterId(products.get(catalogSize - 100).getId());
+        deepPriceFilteredPage = new ProductQuery();
+        deepPriceFilteredPage.setSort(ProductQuery.SORT_BY_PRICE);
+        deepPriceFilteredPage.setMinPrice(100.0);
+        deepPriceFilteredPage.setMaxPrice(400.0);
+        deepPriceFilteredPage.setAfterPrice(350.0);
+        deepPriceFilteredPage.setAfterId(0L);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearPageCache() {
+        if (!cached) {
+            pageCache.clear();
+        }
+    }
+
+    @Benchmark
+    public ProductPage firstPage() {
+        return productService.getProductPage(firstPage);
+    }
+
+    @Benchmark
+    public ProductPage deepPage() {
+        return productService.getProductPage(deepPage);
+    }
+
+    @Benchmark
+    public ProductPage deepPriceFilteredPage() {
+        return productService.getProductPage(deepPriceFilteredPage);
+    }
+
+    @Benchmark
+    public List<Product> findAll() {
+        return productService.getAllProducts();
+    }
+
+    @Benchmark
+    public ProductSearchIndex.Hits searchIndexOnly() {
+        return searchIndex.search("bench prod 42", ProductService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public ProductSearchResult search() {
+        return productService.searchProducts("benchmark number 42", null);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.shoppingcart.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+// Route groups for AdmissionControlFilter, each configured under app.admission.<group>.*:
+// rate and burst per client (rate 0 = no per-client limit), max-concurrent, and the
+// target-latency that the concurrency cap adapts to (0 = fixed cap).
+@Configuration
+@ConditionalOnProperty(name = "app.admission.enabled", matchIfMissing = true)
+public class AdmissionControlConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControlConfig.class);
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.admission.max-clients:100000}")
+    private long maxClients;
+
+    @Value("${app.admission.retry-after:1}")
+    private int retryAfterSeconds;
+
+    @Bean
+    public AdmissionControlFilter admissionControlFilter() {
+        return new AdmissionControlFilter(
+                routeGroup("catalog", 20, 40, 100, Duration.ofMillis(250)),
+                routeGroup("images", 100, 200, 100, Duration.ofSeconds(1)),
+                routeGroup("cart", 10, 20, 50, Duration.ofMillis(250)),
+                routeGroup("checkout", 2, 5, 20, Duration.ofSeconds(1)),
+                routeGroup("admin", 0, 0, 10, Duration.ZERO),
+                retryAfterSeconds);
+    }
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilterRegistration(AdmissionControlFilter filter) {
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(filter);
+        // Right after Spring Security, so signed-in users are limited by name rather than by address
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+        return registration;
+    }
+
+    private RouteGroup routeGroup(String name, double rate, int burst, int maxConcurrent, Duration targetLatency) {
+        String prefix = "app.admission." + name + ".";
+        rate = environment.getProperty(prefix + "rate", Double.class, rate);
+        burst = environment.getProperty(prefix + "burst", Integer.class, burst);
+        maxConcurrent = environment.getProperty(prefix + "max-concurrent", Integer.class, maxConcurrent);
+        targetLatency = environment.getProperty(prefix + "target-latency", Duration.class, targetLatency);
+        logger.info("Admission for {} routes: {} requests/s per client (burst {}), {} concurrent, target latency {} ms",
+                name, rate > 0 ? rate : "unlimited", burst, maxConcurrent, targetLatency.toMillis());
+        ClientRateLimiter rateLimiter = rate > 0 ? new ClientRateLimiter(rate, burst, maxClients) : null;
+        return new RouteGroup(name, rateLimiter, maxConcurrent, targetLatency.toNanos(), meterRegistry);
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.shoppingcart.config;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Admission control in front of the controllers. Each request is put in a route group; a
+// client over the group's rate gets 429, and a request over the group's concurrency cap gets
+// 503, both with Retry-After, before it takes a thread's worth of work or a connection.
+// Signed-in users are limited by name, everyone else by address (the client's, when the request
+// came through a trusted proxy: see server.forward-headers-strategy). Product images have a
+// group of their own, since one listing page asks for dozens of them at once. Login, static
+// resources, the account pages and actuator are not limited here.
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private final RouteGroup catalog;
+    private final RouteGroup images;
+    private final RouteGroup cart;
+    private final RouteGroup checkout;
+    private final RouteGroup admin;
+    private final int retryAfterSeconds;
+
+    public AdmissionControlFilter(RouteGroup catalog, RouteGroup images, RouteGroup cart, RouteGroup checkout,
+                                  RouteGroup admin, int retryAfterSeconds) {
+        this.catalog = catalog;
+        this.images = images;
+        this.cart = cart;
+        this.checkout = checkout;
+        this.admin = admin;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RouteGroup group = classify(request);
+        if (group == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long wait = group.checkRate(clientKey(request));
+        if (wait > 0) {
+            reject(response, HttpStatus.TOO_MANY_REQUESTS.value(), TimeUnit.NANOSECONDS.toSeconds(wait) + 1,
+                    "Too many requests, please slow down.");
+            return;
+        }
+        if (!group.tryEnter()) {
+            reject(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, retryAfterSeconds,
+                    "The shop is very busy right now, please try again shortly.");
+            return;
+        }
+        long start = System.nanoTime();
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                // Streams and exports hold their slot until the response is complete
+                request.getAsyncContext().addListener(new Release(group));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                group.exit(System.nanoTime() - start);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.admission.adjust-interval-ms:500}")
+    public void adjustLimits() {
+        for (RouteGroup group : List.of(catalog, images, cart, checkout, admin)) {
+            group.adjustLimit();
+        }
+    }
+
+    private RouteGroup classify(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.startsWith("/admin/") || path.equals("/showNewProductForm") || path.equals("/saveProduct")
+                || path.startsWith("/showFormForUpdate/") || path.startsWith("/deleteProduct/")) {
+            return admin;
+        }
+        if (path.equals("/checkout") || path.equals("/payment") || path.equals("/processPayment")
+                || path.startsWith("/buyNow/")) {
+            return checkout;
+        }
+        if (path.equals("/viewCart") || path.startsWith("/addToCart/") || path.startsWith("/removeFromCart/")
+                || path.equals("/updateCartItemQuantity")) {
+            return cart;
+        }
+        if (path.equals("/api/products") || path.startsWith("/api/products/")) {
+            // Product writes through the API are catalog administration
+            return HttpMethod.GET.matches(request.getMethod()) ? catalog : admin;
+        }
+        if (path.startsWith("/images/")) {
+            return images;
+        }
+        if (path.equals("/") || path.equals("/search") || path.startsWith("/product/")
+                || path.startsWith("/api/reactive/products")) {
+            return catalog;
+        }
+        return null;
+    }
+
+    private static String clientKey(HttpServletRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
+            return "user:" + auth.getName();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private static void reject(HttpServletResponse response, int status, long retryAfter, String message)
+            throws IOException {
+        response.setStatus(status);
+        response.setHeader("Retry-After", String.valueOf(retryAfter));
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write(message);
+    }
+
+    private static class Release implements AsyncListener {
+        private final RouteGroup group;
+
+        Release(RouteGroup group) {
+            this.group = group;
+        }
+
+        // Also called after a timeout or an error
+        @Override
+        public void onComplete(AsyncEvent event) {
+            group.exit(-1);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        // Listeners are dropped when async processing is started again
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
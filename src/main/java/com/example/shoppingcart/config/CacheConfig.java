@@ -0,0 +1,66 @@
+package com.example.shoppingcart.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheConfig.class);
+
+    public static final String PRODUCTS = "products";
+    public static final String PRODUCT_PAGES = "productPages";
+    public static final String USERS = "users";
+
+    @Value("${app.cache.products.max-size:10000}")
+    private long productsMaxSize;
+
+    @Value("${app.cache.products.ttl:10m}")
+    private Duration productsTtl;
+
+    @Value("${app.cache.product-pages.max-size:1000}")
+    private long productPagesMaxSize;
+
+    @Value("${app.cache.product-pages.ttl:1m}")
+    private Duration productPagesTtl;
+
+    @Value("${app.cache.users.max-size:10000}")
+    private long usersMaxSize;
+
+    @Value("${app.cache.users.ttl:10m}")
+    private Duration usersTtl;
+
+    @Bean
+    public CacheManager cacheManager() {
+        logger.info("Configuring caches: {} (size {}, ttl {}), {} (size {}, ttl {}), {} (size {}, ttl {})",
+                PRODUCTS, productsMaxSize, productsTtl, PRODUCT_PAGES, productPagesMaxSize, productPagesTtl,
+                USERS, usersMaxSize, usersTtl);
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(PRODUCTS, Caffeine.newBuilder()
+                .maximumSize(productsMaxSize)
+                .expireAfterWrite(productsTtl)
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(PRODUCT_PAGES, Caffeine.newBuilder()
+                .maximumSize(productPagesMaxSize)
+                .expireAfterWrite(productPagesTtl)
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(USERS, Caffeine.newBuilder()
+                .maximumSize(usersMaxSize)
+                .expireAfterWrite(usersTtl)
+                .recordStats()
+                .build());
+        return cacheManager;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.shoppingcart.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+// One token bucket per client, kept as a single timestamp (the generic cell rate algorithm):
+// the time at which the client's bucket will be full again. A request takes a token by moving
+// that time forward one interval with a compare-and-set, so there are no locks on the hot path.
+// A client idle for a full refill has nothing to remember, so entries expire after that, and
+// the number of clients tracked is capped.
+public class ClientRateLimiter {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final Cache<String, AtomicLong> clients;
+
+    /**
+     * @param ratePerSecond sustained requests per second per client
+     * @param burst         requests a client can send at once after being idle
+     * @param maxClients    clients tracked at most; the least recently seen are dropped first
+     */
+    public ClientRateLimiter(double ratePerSecond, int burst, long maxClients) {
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / ratePerSecond));
+        this.burstNanos = intervalNanos * Math.max(1, burst);
+        this.clients = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(Duration.ofNanos(burstNanos))
+                .build();
+    }
+
+    /**
+     * @return 0 if the client had a token left, otherwise how long until it has one, in nanoseconds
+     */
+    public long tryAcquire(String client) {
+        long now = System.nanoTime();
+        AtomicLong full = clients.get(client, key -> new AtomicLong(now));
+        while (true) {
+            long current = full.get();
+            long next = (current - now > 0 ? current : now) + intervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (full.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.shoppingcart.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// HTTP endpoints (http.server.requests), Spring Data repositories (spring.data.repository.invocations),
+// Hikari pools and caches are instrumented by Spring Boot. Services and JDBC repositories are timed
+// through @Timed; percentiles for all of them are configured in application.properties.
+@Configuration
+public class MetricsConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsConfig.class);
+
+    public static final String SERVICE_TIMER = "shop.service";
+    public static final String REPOSITORY_TIMER = "shop.repository";
+    public static final String CART_LINES = "shop.cart.lines";
+    public static final String ORDERS = "shop.orders";
+    public static final String OUTBOX = "shop.outbox";
+    public static final String OUTBOX_LAG = "shop.outbox.lag";
+    public static final String DATASOURCE_ROUTES = "shop.datasource.routes";
+    public static final String REPLICA_LAG = "shop.datasource.replica.lag";
+    public static final String REPLICA_HEALTHY = "shop.datasource.replica.healthy";
+    public static final String ADMISSION = "shop.admission";
+    public static final String ADMISSION_LIMIT = "shop.admission.limit";
+    public static final String ADMISSION_IN_FLIGHT = "shop.admission.in-flight";
+    public static final String IMAGE_CACHE = "shop.images.cache";
+    public static final String IMAGE_CACHE_SIZE = "shop.images.cache.size";
+    public static final String PAGE_CACHE = "shop.pages.cache";
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        logger.info("Enabling @Timed metrics");
+        return new TimedAspect(registry);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.shoppingcart.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Which reads must see the primary because a replica may not have caught up yet: reads by a
+// user who has just committed a write, and, after a catalog write, everyone's reads, since
+// those fill the shared product caches. Pins last app.datasource.replica.read-your-writes,
+// which should cover the replica lag allowed by ReplicaRoutingDataSource.
+@Component
+public class ReadYourWrites {
+
+    private static final String EVERYONE = "";
+
+    private final Cache<String, Boolean> pinned;
+
+    public ReadYourWrites(@Value("${app.datasource.replica.read-your-writes:10s}") Duration window,
+                          @Value("${app.datasource.replica.max-pinned-users:100000}") long maxPinnedUsers) {
+        this.pinned = Caffeine.newBuilder()
+                .maximumSize(maxPinnedUsers)
+                .expireAfterWrite(window)
+                .build();
+    }
+
+    public void pinCurrentUser() {
+        String user = currentUser();
+        if (user != null) {
+            pinned.put(user, Boolean.TRUE);
+        }
+    }
+
+    public void pinEveryone() {
+        pinned.put(EVERYONE, Boolean.TRUE);
+    }
+
+    public boolean isCurrentUserPinned() {
+        if (pinned.getIfPresent(EVERYONE) != null) {
+            return true;
+        }
+        String user = currentUser();
+        return user != null && pinned.getIfPresent(user) != null;
+    }
+
+    private static String currentUser() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || auth instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return auth.getName();
+    }
+}
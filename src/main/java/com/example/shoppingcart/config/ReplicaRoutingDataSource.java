@@ -0,0 +1,194 @@
+package com.example.shoppingcart.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Sends read-only transactions to the read replicas, round-robin over the healthy ones, and
+// everything else (writes, reads inside a write transaction, work outside a transaction) to the
+// primary. Must sit behind a LazyConnectionDataSourceProxy: the route is only known once the
+// transaction has been marked read-only, after the transaction manager asked for a connection.
+//
+// Replica health: every check interval the primary's heartbeat row is stamped with the current
+// time and each replica's copy of it is read back. A replica that cannot be reached, or whose
+// heartbeat is more than max-lag behind, gets no reads until it catches up; with no healthy
+// replica, reads go to the primary. Replicas only join once the application is ready, so
+// startup work (schema migrations, demo data, backfills) reads what it has just written. The
+// heartbeat table comes from db/migration; on a brand-new database the first check runs before
+// the migrations and just logs that it could not write the heartbeat.
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    static final String PRIMARY = "primary";
+
+    private static final int CHECK_TIMEOUT_SECONDS = 2;
+
+    private static class Replica {
+        final String name;
+        final HikariDataSource dataSource;
+        final JdbcTemplate jdbcTemplate;
+        volatile boolean healthy;
+        volatile long lagMillis = -1;
+
+        Replica(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+            this.jdbcTemplate.setQueryTimeout(CHECK_TIMEOUT_SECONDS);
+        }
+    }
+
+    private final JdbcTemplate primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final ReadYourWrites readYourWrites;
+    private final MeterRegistry meterRegistry;
+    private final long maxLagMillis;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private volatile List<Replica> healthy = List.of();
+    private volatile boolean started;
+
+    /**
+     * @param maxLagMillis replicas further behind than this are taken out of rotation; 0 only checks
+     *                     that they answer (for replicas without the heartbeat table, e.g. local tests)
+     */
+    public ReplicaRoutingDataSource(HikariDataSource primaryDataSource, List<HikariDataSource> replicaDataSources,
+                                    ReadYourWrites readYourWrites, MeterRegistry meterRegistry, long maxLagMillis) {
+        this.primary = new JdbcTemplate(primaryDataSource);
+        this.readYourWrites = readYourWrites;
+        this.meterRegistry = meterRegistry;
+        this.maxLagMillis = maxLagMillis;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primaryDataSource);
+        for (HikariDataSource dataSource : replicaDataSources) {
+            Replica replica = new Replica(dataSource.getPoolName(), dataSource);
+            replicas.add(replica);
+            targets.put(replica.name, dataSource);
+            Gauge.builder(MetricsConfig.REPLICA_LAG, replica, r -> r.lagMillis / 1000.0)
+                    .tag("replica", replica.name)
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+            Gauge.builder(MetricsConfig.REPLICA_HEALTHY, replica, r -> r.healthy ? 1 : 0)
+                    .tag("replica", replica.name)
+                    .register(meterRegistry);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primaryDataSource);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        checkReplicas();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        readYourWrites.pinCurrentUser();
+                    }
+                });
+            }
+            return route(PRIMARY, "write");
+        }
+        if (!started) {
+            return route(PRIMARY, "starting");
+        }
+        if (readYourWrites.isCurrentUserPinned()) {
+            return route(PRIMARY, "pinned");
+        }
+        List<Replica> candidates = healthy;
+        if (candidates.isEmpty()) {
+            return route(PRIMARY, "no-replica");
+        }
+        return route(candidates.get(Math.floorMod(nextReplica.getAndIncrement(), candidates.size())).name, "read");
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        started = true;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.check-interval-ms:1000}")
+    public void checkReplicas() {
+        long now = System.currentTimeMillis();
+        if (maxLagMillis > 0) {
+            try {
+                beat(now);
+            } catch (Exception e) {
+                logger.warn("Could not write the replication heartbeat: {}", e.getMessage());
+            }
+        }
+        List<Replica> up = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            boolean wasHealthy = replica.healthy;
+            String problem = null;
+            try {
+                if (maxLagMillis > 0) {
+                    Long beat = replica.jdbcTemplate.queryForObject("SELECT beat FROM replication_heartbeat WHERE id = 1", Long.class);
+                    replica.lagMillis = Math.max(0, now - (beat == null ? 0 : beat));
+                    if (replica.lagMillis > maxLagMillis) {
+                        problem = "lagging " + replica.lagMillis + " ms behind the primary";
+                    }
+                } else {
+                    replica.jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+                    replica.lagMillis = 0;
+                }
+            } catch (Exception e) {
+                replica.lagMillis = -1;
+                problem = "unreachable: " + e.getMessage();
+            }
+            replica.healthy = problem == null;
+            if (replica.healthy) {
+                up.add(replica);
+                if (!wasHealthy) {
+                    logger.info("Replica {} is in rotation (lag {} ms)", replica.name, replica.lagMillis);
+                }
+            } else if (wasHealthy) {
+                logger.warn("Replica {} taken out of rotation: {}", replica.name, problem);
+            }
+        }
+        healthy = List.copyOf(up);
+    }
+
+    public void close() {
+        for (Replica replica : replicas) {
+            replica.dataSource.close();
+        }
+    }
+
+    private void beat(long now) {
+        if (primary.update("UPDATE replication_heartbeat SET beat = ? WHERE id = 1", now) == 0) {
+            try {
+                primary.update("INSERT INTO replication_heartbeat (id, beat) VALUES (1, ?)", now);
+            } catch (DuplicateKeyException e) {
+                primary.update("UPDATE replication_heartbeat SET beat = ? WHERE id = 1", now);
+            }
+        }
+    }
+
+    private String route(String target, String reason) {
+        meterRegistry.counter(MetricsConfig.DATASOURCE_ROUTES, "target", target, "reason", reason).increment();
+        return target;
+    }
+}
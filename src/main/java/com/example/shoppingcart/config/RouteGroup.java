@@ -0,0 +1,130 @@
+package com.example.shoppingcart.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Admission state for one group of routes (catalog, images, cart, checkout, admin): an optional
+// per-client rate limit and a cap on requests in flight. The cap starts at max-concurrent and
+// adapts to latency: every adjustment interval it is cut by a tenth while the group's average
+// response time is above its target, and grows back by a twentieth of max-concurrent once it is
+// below. Requests over the cap are turned away at once, so the ones admitted keep their latency
+// instead of all of them queueing for threads and connections.
+public class RouteGroup {
+
+    private static final Logger logger = LoggerFactory.getLogger(RouteGroup.class);
+
+    private final String name;
+    private final ClientRateLimiter rateLimiter;
+    private final int maxConcurrent;
+    private final long targetLatencyNanos;
+    private final int increase;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+
+    private final Counter admitted;
+    private final Counter rateLimited;
+    private final Counter shed;
+
+    /**
+     * @param rateLimiter        null for no per-client limit
+     * @param targetLatencyNanos 0 keeps the cap at maxConcurrent
+     */
+    public RouteGroup(String name, ClientRateLimiter rateLimiter, int maxConcurrent, long targetLatencyNanos,
+                      MeterRegistry meterRegistry) {
+        this.name = name;
+        this.rateLimiter = rateLimiter;
+        this.maxConcurrent = maxConcurrent;
+        this.targetLatencyNanos = targetLatencyNanos;
+        this.increase = Math.max(1, maxConcurrent / 20);
+        this.limit = maxConcurrent;
+        this.admitted = counter(meterRegistry, "admitted");
+        this.rateLimited = counter(meterRegistry, "rate-limited");
+        this.shed = counter(meterRegistry, "shed");
+        Gauge.builder(MetricsConfig.ADMISSION_LIMIT, this, g -> g.limit)
+                .tag("group", name)
+                .register(meterRegistry);
+        Gauge.builder(MetricsConfig.ADMISSION_IN_FLIGHT, inFlight, AtomicInteger::get)
+                .tag("group", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return 0 if the client is within its rate, otherwise nanoseconds until it may retry
+     */
+    public long checkRate(String client) {
+        if (rateLimiter == null) {
+            return 0;
+        }
+        long wait = rateLimiter.tryAcquire(client);
+        if (wait > 0) {
+            rateLimited.increment();
+        }
+        return wait;
+    }
+
+    // Every successful enter must be followed by exactly one exit
+    public boolean tryEnter() {
+        if (inFlight.incrementAndGet() > limit) {
+            inFlight.decrementAndGet();
+            shed.increment();
+            return false;
+        }
+        admitted.increment();
+        return true;
+    }
+
+    /**
+     * @param latencyNanos time spent handling the request, or -1 to leave it out of the average
+     *                     (streams, which are long by design)
+     */
+    public void exit(long latencyNanos) {
+        inFlight.decrementAndGet();
+        if (latencyNanos >= 0) {
+            completed.increment();
+            this.latencyNanos.add(latencyNanos);
+        }
+    }
+
+    public void adjustLimit() {
+        long count = completed.sumThenReset();
+        long total = latencyNanos.sumThenReset();
+        if (targetLatencyNanos <= 0) {
+            return;
+        }
+        int current = limit;
+        if (count == 0 && inFlight.get() > 0) {
+            // Nothing finished in this interval: no evidence either way
+            return;
+        }
+        long average = count == 0 ? 0 : total / count;
+        if (average > targetLatencyNanos) {
+            int lowered = Math.max(1, current - Math.max(1, current / 10));
+            if (current == maxConcurrent) {
+                logger.warn("Shedding {} requests: average latency {} ms is over the {} ms target",
+                        name, average / 1_000_000, targetLatencyNanos / 1_000_000);
+            }
+            limit = lowered;
+        } else if (current < maxConcurrent) {
+            limit = Math.min(maxConcurrent, current + increase);
+            if (limit == maxConcurrent) {
+                logger.info("Stopped shedding {} requests", name);
+            }
+        }
+    }
+
+    private Counter counter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder(MetricsConfig.ADMISSION)
+                .tag("group", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
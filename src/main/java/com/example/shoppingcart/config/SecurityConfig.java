@@ -1,46 +1,132 @@
 package com.example.shoppingcart.config;
 
+import com.example.shoppingcart.exception.LoginThrottledException;
+import com.example.shoppingcart.exception.ServiceException;
+import com.example.shoppingcart.service.CartIdResolver;
+import com.example.shoppingcart.service.CartService;
 import com.example.shoppingcart.service.CustomUserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationSuccessHandler;
+import org.springframework.security.web.authentication.www.BasicAuthenticationEntryPoint;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
     private static final Logger logger = LoggerFactory.getLogger(SecurityConfig.class);
 
+    private static final String BCRYPT = "bcrypt";
+    private static final String ARGON2 = "argon2";
+
+    private static final String[] BASIC_AUTH_PATHS = {"/api/**", "/admin/api/**", "/actuator/**"};
+
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Request-scoped proxy
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartIdResolver cartIdResolver;
+
+    // Algorithm for new hashes; stored hashes of the other algorithm, or with a lower cost,
+    // are re-hashed on the next successful login
+    @Value("${app.security.password.encoder:bcrypt}")
+    private String encoderId;
+
+    @Value("${app.security.password.bcrypt.strength:10}")
+    private int bcryptStrength;
+
+    @Value("${app.security.password.argon2.memory-kb:19456}")
+    private int argon2MemoryKb;
+
+    @Value("${app.security.password.argon2.iterations:2}")
+    private int argon2Iterations;
+
+    @Value("${app.security.password.argon2.parallelism:1}")
+    private int argon2Parallelism;
+
+    // 0 = half of the available cores, so logins always leave CPU for catalog traffic
+    @Value("${app.security.password.verify.threads:0}")
+    private int verifyThreads;
+
+    @Value("${app.security.password.verify.queue-capacity:64}")
+    private int verifyQueueCapacity;
+
+    @Value("${app.security.password.verify.timeout:5s}")
+    private Duration verifyTimeout;
+
+    @Value("${app.security.password.verify.retry-after:1}")
+    private int retryAfterSeconds;
+
+    // Scripted clients (bulk import/export, API callers, the Prometheus scrape) sign in with HTTP
+    // Basic here; a signed-in browser session works on these paths too
     @Bean
+    @Order(1)
+    public SecurityFilterChain apiSecurityFilterChain(HttpSecurity http) throws Exception {
+        logger.info("Configuring API SecurityFilterChain for {}", String.join(", ", BASIC_AUTH_PATHS));
+        authorizeRequests(http.securityMatcher(BASIC_AUTH_PATHS))
+            .httpBasic((basic) -> basic.authenticationEntryPoint(basicAuthenticationEntryPoint()))
+            // A cross-site page cannot set an Authorization header, so Basic-authenticated calls need
+            // no token. Writes riding on a browser session (e.g. requeueing from the admin pages)
+            // still do.
+            .csrf((csrf) -> csrf.ignoringRequestMatchers(SecurityConfig::hasBasicCredentials));
+
+        return http.build();
+    }
+
+    // Pages: the login form and its session only; an Authorization header is ignored here
+    @Bean
+    @Order(2)
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         logger.info("Configuring SecurityFilterChain");
-        http
-            .authorizeHttpRequests((requests) -> requests
-                .requestMatchers("/", "/api/products/**", "/css/**", "/js/**", "/images/**", "/product/**", "/viewCart", "/addToCart/**", "/removeFromCart/**", "/buyNow/**").permitAll()
-                .requestMatchers("/showNewProductForm", "/saveProduct", "/showFormForUpdate/**", "/deleteProduct/**", "/admin/**").hasRole("ADMIN")
-                .anyRequest().authenticated()
-            )
+        authorizeRequests(http)
             .formLogin((form) -> form
                 .loginPage("/login")
                 .permitAll()
-                .defaultSuccessUrl("/", true)
+                .successHandler(loginSuccessHandler())
+                .failureHandler(loginFailureHandler())
             )
             .logout((logout) -> logout
                 .logoutRequestMatcher(new AntPathRequestMatcher("/logout"))
                 .logoutSuccessUrl("/login?logout")
+                // The user's cart stays with their account; the browser starts a new anonymous one
+                .addLogoutHandler((request, response, authentication) -> cartIdResolver.forgetAnonymousCart())
                 .permitAll()
             )
             // Disable CSRF for API simplicity in this demo, but enable for web forms if needed. 
@@ -52,16 +138,99 @@ public class SecurityConfig {
         return http.build();
     }
 
+    private static boolean hasBasicCredentials(HttpServletRequest request) {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        return authorization != null && authorization.regionMatches(true, 0, "Basic ", 0, 6);
+    }
+
+    private HttpSecurity authorizeRequests(HttpSecurity http) throws Exception {
+        return http
+            .authorizeHttpRequests((requests) -> requests
+                .requestMatchers("/", "/search", "/api/products/**", "/css/**", "/js/**", "/images/**", "/product/**", "/viewCart", "/addToCart/**", "/removeFromCart/**", "/buyNow/**").permitAll()
+                .requestMatchers(HttpMethod.GET, "/api/reactive/products/**").permitAll()
+                // Liveness only; the Prometheus scrape shows traffic and internals and needs an admin (HTTP Basic)
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/showNewProductForm", "/saveProduct", "/showFormForUpdate/**", "/deleteProduct/**", "/admin/**", "/actuator/**").hasRole("ADMIN")
+                .anyRequest().authenticated()
+            );
+    }
+
     @Bean
     public AuthenticationProvider authenticationProvider() {
         DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
         provider.setUserDetailsService(userDetailsService);
+        provider.setUserDetailsPasswordService(userDetailsService);
         provider.setPasswordEncoder(passwordEncoder());
         return provider;
     }
 
-    @Bean
+    @Bean(destroyMethod = "shutdown")
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        logger.info("Hashing passwords with {} (bcrypt strength {}, argon2 {} KiB x {} iterations x {} lanes)",
+                encoderId, bcryptStrength, argon2MemoryKb, argon2Iterations, argon2Parallelism);
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put(BCRYPT, new BCryptPasswordEncoder(bcryptStrength));
+        encoders.put(ARGON2, new Argon2PasswordEncoder(16, 32, argon2Parallelism, argon2MemoryKb, argon2Iterations));
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(encoderId, encoders);
+        // Hashes stored before the {id} prefix was introduced are plain BCrypt
+        delegating.setDefaultPasswordEncoderForMatches(encoders.get(BCRYPT));
+        int threads = verifyThreads > 0 ? verifyThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        logger.info("Password verification pool: {} threads, queue capacity {}", threads, verifyQueueCapacity);
+        return new BoundedPasswordEncoder(delegating, threads, verifyQueueCapacity, verifyTimeout, meterRegistry);
+    }
+
+    private AuthenticationSuccessHandler loginSuccessHandler() {
+        SimpleUrlAuthenticationSuccessHandler home = new SimpleUrlAuthenticationSuccessHandler("/");
+        home.setAlwaysUseDefaultTargetUrl(true);
+        return (request, response, authentication) -> {
+            try {
+                cartService.mergeAnonymousCart();
+            } catch (ServiceException e) {
+                // Signing in still succeeds; the anonymous cart stays where it was
+                logger.warn("Could not merge the anonymous cart for {}", authentication.getName());
+            }
+            home.onAuthenticationSuccess(request, response, authentication);
+        };
+    }
+
+    private AuthenticationFailureHandler loginFailureHandler() {
+        SimpleUrlAuthenticationFailureHandler failed = new SimpleUrlAuthenticationFailureHandler("/login?error");
+        return (request, response, exception) -> {
+            if (isThrottled(exception)) {
+                rejectThrottledLogin(response);
+            } else {
+                failed.onAuthenticationFailure(request, response, exception);
+            }
+        };
+    }
+
+    private AuthenticationEntryPoint basicAuthenticationEntryPoint() {
+        BasicAuthenticationEntryPoint basic = new BasicAuthenticationEntryPoint();
+        basic.setRealmName("Realm");
+        return (request, response, exception) -> {
+            if (isThrottled(exception)) {
+                rejectThrottledLogin(response);
+            } else {
+                basic.commence(request, response, exception);
+            }
+        };
+    }
+
+    // DaoAuthenticationProvider wraps anything thrown while loading the user in an
+    // InternalAuthenticationServiceException, so the throttle is looked for in the cause chain
+    private boolean isThrottled(AuthenticationException exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof LoginThrottledException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void rejectThrottledLogin(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write("Too many sign-in attempts right now, please try again shortly.");
     }
 }
@@ -0,0 +1,42 @@
+package com.example.shoppingcart.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// With spring.threads.virtual.enabled on Java 21+, Spring Boot runs Tomcat requests, the
+// application task executor (@Async) and the task scheduler on virtual threads. Request
+// concurrency is then bounded by the Hikari pool rather than Tomcat's worker pool.
+@Configuration
+@EnableScheduling
+public class ThreadingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThreadingConfig.class);
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsRequested;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int maximumPoolSize;
+
+    @PostConstruct
+    public void logThreadingMode() {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            logger.info("Request handling runs on virtual threads (database concurrency capped at {} connections)", maximumPoolSize);
+        } else if (virtualThreadsRequested) {
+            logger.warn("spring.threads.virtual.enabled is set but Java {} has no virtual threads, using platform threads",
+                    Runtime.version().feature());
+        } else {
+            logger.info("Request handling runs on platform threads");
+        }
+    }
+}
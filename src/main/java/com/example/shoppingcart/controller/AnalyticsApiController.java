@@ -0,0 +1,24 @@
+package com.example.shoppingcart.controller;
+
+import com.example.shoppingcart.model.SalesSummary;
+import com.example.shoppingcart.service.SalesAnalyticsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/admin/api/analytics")
+public class AnalyticsApiController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsApiController.class);
+
+    @Autowired
+    private SalesAnalyticsService salesAnalyticsService;
+
+    @GetMapping
+    public SalesSummary getSummary(@RequestParam(value = "days", required = false) Integer days) {
+        logger.info("API: Fetching sales summary, days: {}", days);
+        return salesAnalyticsService.getSummary(days);
+    }
+}
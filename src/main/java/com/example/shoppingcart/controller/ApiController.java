@@ -1,14 +1,20 @@
 package com.example.shoppingcart.controller;
 
+import com.example.shoppingcart.exception.ConcurrentUpdateException;
 import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.ProductPage;
+import com.example.shoppingcart.model.ProductQuery;
+import com.example.shoppingcart.model.ProductSearchResult;
 import com.example.shoppingcart.service.ProductService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/products")
@@ -20,16 +26,32 @@ public class ApiController {
     private ProductService productService;
 
     @GetMapping
-    public List<Product> getAllProducts() {
-        logger.info("API: Fetching all products");
-        return productService.getAllProducts();
+    public ResponseEntity<ProductPage> getProducts(ProductQuery query, WebRequest request) {
+        logger.info("API: Fetching product page, sort: {}, afterId: {}", query.getSort(), query.getAfterId());
+        ProductPage page = productService.getProductPage(query);
+        // ETag only: a removed product changes the page without moving any Last-Modified date
+        if (request.checkNotModified(CatalogETags.page(page))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CatalogETags.API_CACHE_CONTROL).build();
+        }
+        return ResponseEntity.ok().cacheControl(CatalogETags.API_CACHE_CONTROL).body(page);
+    }
+
+    @GetMapping("/search")
+    public ProductSearchResult searchProducts(@RequestParam("q") String q,
+                                              @RequestParam(value = "size", required = false) Integer size) {
+        logger.info("API: Searching products: {}", q);
+        return productService.searchProducts(q, size);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
+    public ResponseEntity<Product> getProductById(@PathVariable Long id, WebRequest request) {
         logger.info("API: Fetching product by id: {}", id);
+        Optional<Long> version = productService.getProductVersion(id);
+        if (version.isPresent() && request.checkNotModified(CatalogETags.product(id, version.get()))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CatalogETags.API_CACHE_CONTROL).build();
+        }
         return productService.getProductById(id)
-                .map(ResponseEntity::ok)
+                .map(product -> ResponseEntity.ok().cacheControl(CatalogETags.API_CACHE_CONTROL).body(product))
                 .orElseGet(() -> {
                     logger.warn("API: Product not found for id: {}", id);
                     return ResponseEntity.notFound().build();
@@ -42,17 +64,31 @@ public class ApiController {
         return productService.saveProduct(product);
     }
 
+    // The body must carry the version it was edited from (as returned by GET); 409 if the product
+    // has changed since, e.g. a checkout reserved stock, so a stale stock count is never written back.
+    // Stock may be left out to keep it as it is.
     @PutMapping("/{id}")
     public ResponseEntity<Product> updateProduct(@PathVariable Long id, @RequestBody Product productDetails) {
         logger.info("API: Updating product id: {}", id);
-        return productService.getProductById(id)
-                .map(product -> {
-                    product.setName(productDetails.getName());
-                    product.setDescription(productDetails.getDescription());
-                    product.setPrice(productDetails.getPrice());
-                    product.setImageUrl(productDetails.getImageUrl());
-                    Product updatedProduct = productService.saveProduct(product);
-                    return ResponseEntity.ok(updatedProduct);
+        if (productDetails.getVersion() == null) {
+            logger.warn("API: Product update without a version, id: {}", id);
+            return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED).build();
+        }
+        // Read from the primary rather than the cache: a body without stock keeps the current stock,
+        // which must be the one of the version the update is checked against
+        return productService.getProductForEdit(id)
+                .map(existing -> {
+                    Integer stock = productDetails.getStock() != null ? productDetails.getStock() : existing.getStock();
+                    Product product = new Product(productDetails.getName(), productDetails.getDescription(),
+                            productDetails.getPrice(), productDetails.getImageUrl(), stock);
+                    product.setId(existing.getId());
+                    product.setVersion(productDetails.getVersion());
+                    try {
+                        return ResponseEntity.ok(productService.saveProduct(product));
+                    } catch (ConcurrentUpdateException e) {
+                        logger.warn("API: Product changed since version {}, id: {}", productDetails.getVersion(), id);
+                        return ResponseEntity.status(HttpStatus.CONFLICT).<Product>build();
+                    }
                 })
                 .orElseGet(() -> {
                     logger.warn("API: Product not found for update, id: {}", id);
@@ -0,0 +1,47 @@
+package com.example.shoppingcart.controller;
+
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.ProductPage;
+import com.example.shoppingcart.model.ProductSummary;
+import com.example.shoppingcart.service.ProductService;
+import org.springframework.http.CacheControl;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+// Strong validators for catalog responses, derived from product ids and versions (@Version)
+final class CatalogETags {
+
+    // Shared caches may store catalog JSON but must revalidate it on every use
+    static final CacheControl API_CACHE_CONTROL = CacheControl.noCache().cachePublic();
+
+    // Pages embed the visitor's cart badge and login state, so only the browser may store them
+    static final CacheControl PAGE_CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    // Rendered pages change with the templates, so their tags are tied to this deployment
+    private static final long RENDER_EPOCH = System.currentTimeMillis();
+
+    private CatalogETags() {
+    }
+
+    static String product(Long id, long version) {
+        return "p" + id + "-" + version;
+    }
+
+    static String page(ProductPage page) {
+        StringBuilder key = new StringBuilder(page.getSize() * 24);
+        for (ProductSummary product : page.getItems()) {
+            key.append(product.getId()).append(':').append(ProductService.versionOf(product)).append(',');
+        }
+        key.append(page.isHasNext()).append(',').append(page.getNextAfterId()).append(',').append(page.getNextAfterPrice());
+        return "l" + md5(key.toString());
+    }
+
+    static String productPage(Long id, long version, int cartCount, String username) {
+        return "h" + md5(id + ":" + version + ":" + cartCount + ":" + username + ":" + RENDER_EPOCH);
+    }
+
+    private static String md5(String key) {
+        return DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8));
+    }
+}
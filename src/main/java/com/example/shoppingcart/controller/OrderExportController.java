@@ -0,0 +1,37 @@
+package com.example.shoppingcart.controller;
+
+import com.example.shoppingcart.model.ExportFormat;
+import com.example.shoppingcart.model.OrderQuery;
+import com.example.shoppingcart.service.OrderExportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+// Orders for a date range (plus the other /admin/orders filters) as a download, e.g.
+//   curl -u admin:... --compressed '.../admin/api/orders/export?from=2024-01-01&to=2024-01-31&format=csv' -o orders.csv
+@RestController
+@RequestMapping("/admin/api/orders")
+public class OrderExportController {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderExportController.class);
+
+    @Autowired
+    private OrderExportService orderExportService;
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(OrderQuery query,
+                                                              @RequestParam(value = "format", defaultValue = "csv") String format,
+                                                              @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        logger.info("API: Exporting orders, format: {}, from: {}, to: {}", format, query.getFrom(), query.getTo());
+        ExportFormat exportFormat = ExportFormat.fromExtension(format);
+        if (exportFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return StreamingExports.attachment(exportFormat, "orders", acceptEncoding,
+                out -> orderExportService.exportOrders(query, exportFormat, out));
+    }
+}
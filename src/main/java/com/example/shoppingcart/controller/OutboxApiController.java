@@ -0,0 +1,31 @@
+package com.example.shoppingcart.controller;
+
+import com.example.shoppingcart.service.OutboxService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/api/outbox")
+public class OutboxApiController {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxApiController.class);
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @GetMapping
+    public Map<String, Long> getQueueSizes() {
+        logger.info("API: Fetching outbox queue sizes");
+        return outboxService.getQueueSizes();
+    }
+
+    @PostMapping("/requeue")
+    public Map<String, Integer> requeueFailed() {
+        logger.info("API: Requeueing failed outbox events");
+        return Map.of("requeued", outboxService.requeueFailed());
+    }
+}
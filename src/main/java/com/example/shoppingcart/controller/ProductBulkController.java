@@ -0,0 +1,53 @@
+package com.example.shoppingcart.controller;
+
+import com.example.shoppingcart.model.ExportFormat;
+import com.example.shoppingcart.model.ProductImportResult;
+import com.example.shoppingcart.service.ProductBulkService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+
+// Catalog bulk load for admins and scripts (HTTP Basic or the admin session), e.g.
+//   curl -u admin:... -H 'Content-Type: application/x-ndjson' --data-binary @products.ndjson .../admin/api/products/import
+//   curl -u admin:... '.../admin/api/products/export?format=csv' -o products.csv
+@RestController
+@RequestMapping("/admin/api/products")
+public class ProductBulkController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductBulkController.class);
+
+    @Autowired
+    private ProductBulkService productBulkService;
+
+    // The body is read as it arrives; it is never buffered in full
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<ProductImportResult> importProducts(HttpServletRequest request) throws IOException {
+        MediaType contentType = MediaType.parseMediaType(request.getContentType());
+        ExportFormat format = contentType.isCompatibleWith(MediaType.parseMediaType(ExportFormat.CSV.getMediaType()))
+                ? ExportFormat.CSV : ExportFormat.NDJSON;
+        logger.info("API: Importing products, format: {}, content length: {}", format, request.getContentLengthLong());
+        ProductImportResult result = productBulkService.importProducts(request.getInputStream(), format);
+        return ResponseEntity.status(result.isCompleted() ? HttpStatus.OK : HttpStatus.BAD_REQUEST).body(result);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                                                @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        logger.info("API: Exporting products, format: {}", format);
+        ExportFormat exportFormat = ExportFormat.fromExtension(format);
+        if (exportFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return StreamingExports.attachment(exportFormat, "products", acceptEncoding,
+                out -> productBulkService.exportProducts(out, exportFormat));
+    }
+}
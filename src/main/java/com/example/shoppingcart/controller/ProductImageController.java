@@ -0,0 +1,96 @@
+package com.example.shoppingcart.controller;
+
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.ProductImageSize;
+import com.example.shoppingcart.repository.ProductImageStore.StoredImage;
+import com.example.shoppingcart.service.ProductImageService;
+import com.example.shoppingcart.service.ProductService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Resized product images. Templates link them with the product version (?v=version), so a
+// response for the current version never changes and browsers and CDNs may keep it for a year.
+// Files are handed to Tomcat's sendfile, which copies them from the page cache to the socket
+// without passing through the JVM. The product is read in its own short transaction (there is no
+// open-in-view), so no pool connection is held while an original is fetched, for up to
+// app.images.fetch-timeout.
+@Controller
+public class ProductImageController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImageController.class);
+
+    private static final CacheControl VERSIONED = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+    private static final CacheControl UNVERSIONED = CacheControl.noCache().cachePublic();
+    private static final CacheControl FALLBACK = CacheControl.maxAge(1, TimeUnit.MINUTES);
+
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductImageService productImageService;
+
+    @GetMapping("/images/products/{id}/{size}")
+    public void getProductImage(@PathVariable Long id, @PathVariable String size,
+                                @RequestParam(value = "v", required = false) Long version,
+                                HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ProductImageSize imageSize = ProductImageSize.fromPath(size);
+        Product product = imageSize != null ? productService.getProductById(id).orElse(null) : null;
+        if (product == null || !StringUtils.hasText(product.getImageUrl())) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        StoredImage image = productImageService.getImage(product, imageSize);
+        if (image == null) {
+            if (!productImageService.isLinkable(product.getImageUrl())) {
+                logger.warn("Not linking image URL of product {}: {}", id, product.getImageUrl());
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            // Could not be fetched or decoded here; the browser may still manage
+            response.setHeader(HttpHeaders.CACHE_CONTROL, FALLBACK.getHeaderValue());
+            response.sendRedirect(product.getImageUrl());
+            return;
+        }
+        boolean current = version != null && version == ProductService.versionOf(product);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, (current ? VERSIONED : UNVERSIONED).getHeaderValue());
+        if (new ServletWebRequest(request, response).checkNotModified(image.getETag())) {
+            return;
+        }
+        boolean sendfile = Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED));
+        logger.debug("Serving {} image of product {} ({} bytes, sendfile {})", size, id, image.getLength(), sendfile);
+        response.setContentType(MediaType.IMAGE_JPEG_VALUE);
+        response.setContentLengthLong(image.getLength());
+        if (HttpMethod.HEAD.matches(request.getMethod())) {
+            return;
+        }
+        if (sendfile) {
+            request.setAttribute(SENDFILE_FILENAME, image.getPath().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, image.getLength());
+        } else {
+            Files.copy(image.getPath(), response.getOutputStream());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.shoppingcart.controller;
+
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.ProductQuery;
+import com.example.shoppingcart.model.ProductSummary;
+import com.example.shoppingcart.service.ProductService;
+import com.example.shoppingcart.service.ReactiveCatalogService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.BindException;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Optional;
+
+// Handlers behind ReactiveCatalogRoutes. A stream is written one keyset page per chunk: each
+// chunk is flushed to the client and the next page is only requested once the write returns.
+@Component
+public class ReactiveCatalogHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveCatalogHandler.class);
+
+    @Autowired
+    private ReactiveCatalogService reactiveCatalogService;
+
+    @Autowired
+    private ProductService productService;
+
+    private final ObjectWriter productWriter;
+
+    public ReactiveCatalogHandler(ObjectMapper objectMapper) {
+        this.productWriter = objectMapper.writerFor(ProductSummary.class);
+    }
+
+    public ServerResponse streamProducts(ServerRequest request) {
+        // @ControllerAdvice does not cover functional handlers, so bad parameters are answered here
+        ProductQuery query;
+        Integer limit;
+        try {
+            query = request.bind(ProductQuery.class);
+            limit = request.param("limit").map(Integer::valueOf).orElse(null);
+        } catch (BindException | NumberFormatException e) {
+            logger.warn("Reactive API: Bad stream parameters: {}", e.getMessage());
+            return ServerResponse.badRequest().build();
+        }
+        logger.info("Reactive API: Streaming products, sort: {}, afterId: {}, limit: {}", query.getSort(), query.getAfterId(), limit);
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(reactiveCatalogService.streamProducts(query, limit).map(this::toNdjson));
+    }
+
+    public ServerResponse getProduct(ServerRequest request) {
+        Long id;
+        try {
+            id = Long.valueOf(request.pathVariable("id"));
+        } catch (NumberFormatException e) {
+            return ServerResponse.badRequest().build();
+        }
+        logger.info("Reactive API: Fetching product by id: {}", id);
+        // Validators are decided on this thread (one primary-key lookup), because Spring Security
+        // writes its no-cache headers to any response that has none when the handler returns
+        Optional<Long> version = productService.getProductVersion(id);
+        if (version.isEmpty()) {
+            logger.warn("Reactive API: Product not found for id: {}", id);
+            return ServerResponse.notFound().build();
+        }
+        String etag = CatalogETags.product(id, version.get());
+        Optional<ServerResponse> notModified = request.checkNotModified(etag);
+        if (notModified.isPresent()) {
+            return ServerResponse.from(notModified.get()).cacheControl(CatalogETags.API_CACHE_CONTROL).build();
+        }
+        HttpServletResponse response = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getResponse();
+        if (response != null) {
+            response.setHeader(HttpHeaders.ETAG, "\"" + etag + "\"");
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CatalogETags.API_CACHE_CONTROL.getHeaderValue());
+        }
+        return ServerResponse.async(reactiveCatalogService.getProduct(id).map(product -> found(id, product)));
+    }
+
+    private ServerResponse found(Long id, Optional<Product> product) {
+        if (product.isEmpty()) {
+            logger.warn("Reactive API: Product not found for id: {}", id);
+            return ServerResponse.notFound().build();
+        }
+        return ServerResponse.ok().body(product.get());
+    }
+
+    private byte[] toNdjson(List<ProductSummary> products) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(products.size() * 256);
+        try {
+            for (ProductSummary product : products) {
+                out.writeBytes(productWriter.writeValueAsBytes(product));
+                out.write('\n');
+            }
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.shoppingcart.controller;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import static org.springframework.web.servlet.function.RouterFunctions.route;
+
+// Functional endpoints for the read-only catalog, served by Spring MVC next to ApiController
+// and WebController. Responses are asynchronous: the Tomcat thread returns once the stream is
+// subscribed, and database work runs on ReactiveCatalogService's bounded scheduler.
+@Configuration
+public class ReactiveCatalogRoutes {
+
+    @Bean
+    public RouterFunction<ServerResponse> reactiveCatalog(ReactiveCatalogHandler handler) {
+        return route()
+                .GET("/api/reactive/products", handler::streamProducts)
+                .GET("/api/reactive/products/{id}", handler::getProduct)
+                .build();
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.shoppingcart.controller;
+
+import com.example.shoppingcart.config.MetricsConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.ui.Model;
+import org.springframework.web.servlet.support.RequestContextUtils;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.spring6.view.ThymeleafViewResolver;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BooleanSupplier;
+
+// Catalog pages as rendered for anonymous visitors, keyed by the version of the catalog data
+// they show and the locale they were rendered in. The regions that differ between anonymous
+// visitors are th:fragments of the template (cartBadge, flash); they are cut out of the cached
+// page and rendered on their own, and those renderings are cached by value as well, so a hit
+// touches neither the database nor the template engine. Signed-in visitors see their name and
+// role-specific controls and always get a fresh render.
+@Component
+class RenderedPageCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RenderedPageCache.class);
+
+    // Per-visitor regions and the model attributes they show
+    private static final Map<String, List<String>> PARTS = Map.of(
+            "cartBadge", List.of("cartCount"),
+            "flash", List.of("message", "error"));
+
+    // Rendered instead of the visitor's values, to find where each region lands in the page
+    private static final Map<String, Object> PLACEHOLDERS = Map.of(
+            "cartCount", 987_654_321,
+            "message", "rendered-page-message-placeholder",
+            "error", "rendered-page-error-placeholder");
+
+    private record PageKey(String view, Object key, Object version, Locale locale) {
+    }
+
+    // chunks[i] comes before parts[i]; there is one more chunk than parts
+    private record Page(byte[][] chunks, String[] parts) {
+    }
+
+    @Autowired
+    private ThymeleafViewResolver viewResolver;
+
+    @Autowired
+    private SpringTemplateEngine templateEngine;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.cache.rendered-pages.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.cache.rendered-pages.max-size:1000}")
+    private long maxSize;
+
+    // Pages are keyed by the data they show, so this only frees the ones no longer asked for
+    @Value("${app.cache.rendered-pages.ttl:1m}")
+    private Duration ttl;
+
+    private final AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
+    private Cache<PageKey, Page> pages;
+    // Views whose regions could not be cut out, retried once they expire (e.g. after a template change)
+    private Cache<String, Boolean> uncacheable;
+    private Cache<String, byte[]> parts;
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        pages = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+        parts = Caffeine.newBuilder()
+                .maximumSize(1_000)
+                .build();
+        uncacheable = Caffeine.newBuilder()
+                .maximumSize(100)
+                .expireAfterWrite(ttl)
+                .build();
+        hits = meterRegistry.counter(MetricsConfig.PAGE_CACHE, "result", "hit");
+        misses = meterRegistry.counter(MetricsConfig.PAGE_CACHE, "result", "miss");
+    }
+
+    /**
+     * Writes the page for an anonymous visitor, rendering it into the cache on a miss.
+     *
+     * @param key      what the page shows besides its data, e.g. the query
+     * @param version  identifies the data the page shows, e.g. the product's @Version read from the database
+     * @param populate adds the page's data to the model on a miss; false if there is nothing to show
+     * @return false if the caller must handle the request: the visitor is signed in, the page
+     * cannot be cached, or populate found nothing
+     */
+    boolean serve(String view, Object key, Object version, Model model, HttpServletRequest request,
+                  HttpServletResponse response, BooleanSupplier populate) throws Exception {
+        if (!enabled || !isAnonymous() || uncacheable.getIfPresent(view) != null) {
+            return false;
+        }
+        Locale locale = RequestContextUtils.getLocale(request);
+        PageKey pageKey = new PageKey(view, key, version, locale);
+        Page page = pages.getIfPresent(pageKey);
+        if (page != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            if (!populate.getAsBoolean()) {
+                return false;
+            }
+            page = render(view, model, locale, request, response);
+            if (page == null) {
+                uncacheable.put(view, Boolean.TRUE);
+                return false;
+            }
+            pages.put(pageKey, page);
+        }
+        write(view, page, model.asMap(), locale, response);
+        return true;
+    }
+
+    private boolean isAnonymous() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null || trustResolver.isAnonymous(authentication);
+    }
+
+    // null if the regions cannot be told apart from the rest of the page
+    private Page render(String view, Model model, Locale locale, HttpServletRequest request,
+                        HttpServletResponse response) throws Exception {
+        Map<String, Object> values = new HashMap<>(model.asMap());
+        values.putAll(PLACEHOLDERS);
+        ContentCachingResponseWrapper capture = new ContentCachingResponseWrapper(response);
+        viewResolver.resolveViewName(view, locale).render(values, request, capture);
+        String html = new String(capture.getContentAsByteArray(), StandardCharsets.UTF_8);
+
+        // Each region must render to something that occurs exactly once in the page
+        TreeMap<Integer, String> regions = new TreeMap<>();
+        Map<String, Integer> lengths = new HashMap<>();
+        for (String part : PARTS.keySet()) {
+            String placeholder = renderPart(view, part, PLACEHOLDERS, locale);
+            if (placeholder.isBlank()) {
+                continue;
+            }
+            int start = html.indexOf(placeholder);
+            if (start < 0 || html.indexOf(placeholder, start + 1) >= 0) {
+                logger.warn("Not caching {}: region {} does not occur exactly once in the page", view, part);
+                return null;
+            }
+            regions.put(start, part);
+            lengths.put(part, placeholder.length());
+        }
+        List<byte[]> chunks = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        StringBuilder rest = new StringBuilder();
+        int position = 0;
+        for (Map.Entry<Integer, String> region : regions.entrySet()) {
+            if (region.getKey() < position) {
+                logger.warn("Not caching {}: region {} overlaps another", view, region.getValue());
+                return null;
+            }
+            String chunk = html.substring(position, region.getKey());
+            chunks.add(chunk.getBytes(StandardCharsets.UTF_8));
+            names.add(region.getValue());
+            rest.append(chunk);
+            position = region.getKey() + lengths.get(region.getValue());
+        }
+        String last = html.substring(position);
+        chunks.add(last.getBytes(StandardCharsets.UTF_8));
+        rest.append(last);
+        for (Object placeholder : PLACEHOLDERS.values()) {
+            if (rest.indexOf(placeholder.toString()) >= 0) {
+                logger.warn("Not caching {}: it shows per-visitor values outside the cartBadge and flash fragments", view);
+                return null;
+            }
+        }
+        return new Page(chunks.toArray(new byte[0][]), names.toArray(new String[0]));
+    }
+
+    private void write(String view, Page page, Map<String, Object> model, Locale locale,
+                       HttpServletResponse response) throws Exception {
+        byte[][] rendered = new byte[page.parts().length][];
+        long length = 0;
+        for (int i = 0; i < rendered.length; i++) {
+            rendered[i] = part(view, page.parts()[i], model, locale);
+            length += rendered[i].length;
+        }
+        for (byte[] chunk : page.chunks()) {
+            length += chunk.length;
+        }
+        response.setContentType(MediaType.TEXT_HTML_VALUE + ";charset=UTF-8");
+        response.setContentLengthLong(length);
+        ServletOutputStream out = response.getOutputStream();
+        for (int i = 0; i < rendered.length; i++) {
+            out.write(page.chunks()[i]);
+            out.write(rendered[i]);
+        }
+        out.write(page.chunks()[rendered.length]);
+    }
+
+    private byte[] part(String view, String part, Map<String, Object> model, Locale locale) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String attribute : PARTS.get(part)) {
+            values.put(attribute, model.get(attribute));
+        }
+        return parts.get(view + "::" + part + "::" + locale + values,
+                k -> renderPart(view, part, values, locale).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String renderPart(String view, String part, Map<String, Object> values, Locale locale) {
+        return templateEngine.process(view, Set.of(part), new Context(locale, values));
+    }
+}
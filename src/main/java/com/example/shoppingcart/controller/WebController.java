@@ -1,20 +1,37 @@
 package com.example.shoppingcart.controller;
 
+import com.example.shoppingcart.exception.ConcurrentUpdateException;
+import com.example.shoppingcart.exception.InsufficientStockException;
+import com.example.shoppingcart.exception.PriceChangedException;
+import com.example.shoppingcart.exception.ServiceException;
 import com.example.shoppingcart.model.Order;
+import com.example.shoppingcart.model.OrderPage;
+import com.example.shoppingcart.model.OrderQuery;
 import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.ProductPage;
+import com.example.shoppingcart.model.ProductQuery;
+import com.example.shoppingcart.model.ProductSearchResult;
 import com.example.shoppingcart.model.User;
-import com.example.shoppingcart.repository.UserRepository;
+import com.example.shoppingcart.model.UserPrincipal;
 import com.example.shoppingcart.service.CartService;
 import com.example.shoppingcart.service.OrderService;
 import com.example.shoppingcart.service.ProductService;
+import com.example.shoppingcart.service.SalesAnalyticsService;
+import com.example.shoppingcart.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import java.util.List;
+import java.util.Optional;
 import com.example.shoppingcart.model.CartItem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,7 +51,13 @@ public class WebController {
     private OrderService orderService;
 
     @Autowired
-    private UserRepository userRepository;
+    private UserService userService;
+
+    @Autowired
+    private SalesAnalyticsService salesAnalyticsService;
+
+    @Autowired
+    private RenderedPageCache renderedPageCache;
 
     @ModelAttribute("cartCount")
     public int getCartCount() {
@@ -48,12 +71,35 @@ public class WebController {
     }
 
     @GetMapping("/")
-    public String viewHomePage(Model model) {
+    public String viewHomePage(@ModelAttribute("query") ProductQuery query, Model model,
+                               HttpServletRequest request, HttpServletResponse response) throws Exception {
         logger.info("Accessing home page");
-        model.addAttribute("listProducts", productService.getAllProducts());
+        ProductPage page = productService.getProductPage(query);
+        // Keyed by the products and versions listed, so the page changes with the product page cache
+        if (renderedPageCache.serve("index", query, CatalogETags.page(page), model, request, response,
+                () -> addProductPage(page, model))) {
+            return null;
+        }
+        addProductPage(page, model);
         return "index";
     }
 
+    private boolean addProductPage(ProductPage page, Model model) {
+        model.addAttribute("listProducts", page.getItems());
+        model.addAttribute("page", page);
+        return true;
+    }
+
+    @GetMapping("/search")
+    public String search(@RequestParam(value = "q", required = false) String q,
+                         @RequestParam(value = "size", required = false) Integer size, Model model) {
+        logger.info("Searching products: {}", q);
+        ProductSearchResult result = productService.searchProducts(q, size);
+        model.addAttribute("result", result);
+        model.addAttribute("listProducts", result.getItems());
+        return "search";
+    }
+
     @GetMapping("/showNewProductForm")
     public String showNewProductForm(Model model) {
         logger.info("Accessing new product form");
@@ -63,16 +109,21 @@ public class WebController {
     }
 
     @PostMapping("/saveProduct")
-    public String saveProduct(@ModelAttribute("product") Product product) {
+    public String saveProduct(@ModelAttribute("product") Product product, RedirectAttributes redirectAttributes) {
         logger.info("Saving product: {}", product.getName());
-        productService.saveProduct(product);
+        try {
+            productService.saveProduct(product);
+        } catch (ConcurrentUpdateException e) {
+            redirectAttributes.addFlashAttribute("error", e.getMessage() + ". Review the current values and save again.");
+            return "redirect:/showFormForUpdate/" + product.getId();
+        }
         return "redirect:/";
     }
 
     @GetMapping("/showFormForUpdate/{id}")
     public String showFormForUpdate(@PathVariable(value = "id") Long id, Model model) {
         logger.info("Accessing update form for product id: {}", id);
-        Product product = productService.getProductById(id).orElse(null);
+        Product product = productService.getProductForEdit(id).orElse(null);
         model.addAttribute("product", product);
         return "update_product";
     }
@@ -85,8 +136,23 @@ public class WebController {
     }
 
     @GetMapping("/product/{id}")
-    public String viewProductDetails(@PathVariable(value = "id") Long id, Model model) {
+    public String viewProductDetails(@PathVariable(value = "id") Long id, Model model, WebRequest request,
+                                     HttpServletRequest servletRequest, HttpServletResponse response) throws Exception {
         logger.info("Viewing product details for id: {}", id);
+        Optional<Long> version = productService.getProductVersion(id);
+        if (version.isPresent()) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CatalogETags.PAGE_CACHE_CONTROL.getHeaderValue());
+            String username = request.getUserPrincipal() != null ? request.getUserPrincipal().getName() : "";
+            String etag = CatalogETags.productPage(id, version.get(), cartService.getCartItemCount(), username);
+            if (request.checkNotModified(etag)) {
+                return null;
+            }
+            long current = version.get();
+            if (renderedPageCache.serve("product_details", id, current, model, servletRequest, response,
+                    () -> addProduct(id, current, model))) {
+                return null;
+            }
+        }
         Product product = productService.getProductById(id).orElse(null);
         if (product == null) {
             logger.warn("Product not found for id: {}", id);
@@ -96,6 +162,14 @@ public class WebController {
         return "product_details";
     }
 
+    // Only when the product loaded is the version the page is cached under; a lagging replica may
+    // still return an older one, which is then rendered but not cached
+    private boolean addProduct(Long id, long version, Model model) {
+        Optional<Product> product = productService.getProductById(id).filter(p -> ProductService.versionOf(p) == version);
+        product.ifPresent(p -> model.addAttribute("product", p));
+        return product.isPresent();
+    }
+
     @GetMapping("/addToCart/{id}")
     public String addToCart(@PathVariable(value = "id") Long id, RedirectAttributes redirectAttributes) {
         logger.info("Adding product id: {} to cart", id);
@@ -159,17 +233,28 @@ public class WebController {
     }
 
     @PostMapping("/processPayment")
-    public String processPayment(Model model) {
+    public String processPayment(Model model, RedirectAttributes redirectAttributes) {
         logger.info("Processing payment");
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String username = auth.getName();
-        User user = userRepository.findByUsername(username).orElse(null);
-        
+        User user = currentUser(auth);
+
         if (user != null) {
             List<CartItem> cartItems = cartService.getCartItems();
             if (!cartItems.isEmpty()) {
                 logger.info("Creating order for user: {}", username);
-                orderService.createOrder(user, cartItems);
+                try {
+                    orderService.createOrder(user, cartItems);
+                } catch (InsufficientStockException | PriceChangedException e) {
+                    logger.warn("Order rejected for user: {}: {}", username, e.getMessage());
+                    redirectAttributes.addFlashAttribute("error", e.getMessage());
+                    return "redirect:/viewCart";
+                } catch (ServiceException e) {
+                    // Nothing was charged or reserved; the cart is kept so the user can try again
+                    logger.error("Order failed for user: {}", username, e);
+                    redirectAttributes.addFlashAttribute("error", "Your order could not be placed. Please try again.");
+                    return "redirect:/viewCart";
+                }
                 cartService.clearCart();
             } else {
                 logger.warn("Cart is empty for user: {}", username);
@@ -181,14 +266,13 @@ public class WebController {
     }
 
     @GetMapping("/myOrders")
-    public String myOrders(Model model) {
-        logger.info("Accessing my orders");
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String username = auth.getName();
-        User user = userRepository.findByUsername(username).orElse(null);
+    public String myOrders(@RequestParam(value = "page", defaultValue = "0") int page, Model model) {
+        logger.info("Accessing my orders, page: {}", page);
+        User user = currentUser(SecurityContextHolder.getContext().getAuthentication());
         if (user != null) {
-            List<Order> orders = orderService.getOrdersByUser(user);
-            model.addAttribute("orders", orders);
+            Slice<Order> orders = orderService.getOrdersByUser(user, page);
+            model.addAttribute("orders", orders.getContent());
+            model.addAttribute("ordersPage", orders);
         }
         return "my_orders";
     }
@@ -202,10 +286,12 @@ public class WebController {
     }
 
     @GetMapping("/admin/orders")
-    public String adminOrders(Model model) {
-        logger.info("Accessing admin orders page");
-        List<Order> orders = orderService.getAllOrders();
-        model.addAttribute("orders", orders);
+    public String adminOrders(@ModelAttribute("query") OrderQuery query, Model model) {
+        logger.info("Accessing admin orders page, before: ({}, {})", query.getBeforeDate(), query.getBeforeId());
+        OrderPage orders = orderService.searchOrders(query);
+        model.addAttribute("orders", orders.getItems());
+        model.addAttribute("ordersPage", orders);
+        model.addAttribute("statusCounts", orderService.getOrderCountsByStatus());
         return "admin_orders";
     }
 
@@ -215,4 +301,26 @@ public class WebController {
         orderService.updateOrderStatus(orderId, status);
         return "redirect:/admin/orders";
     }
+
+    @GetMapping("/admin/analytics")
+    public String adminAnalytics(@RequestParam(value = "days", required = false) Integer days, Model model) {
+        logger.info("Accessing admin analytics page, days: {}", days);
+        model.addAttribute("summary", salesAnalyticsService.getSummary(days));
+        return "admin_analytics";
+    }
+
+    @PostMapping("/admin/analytics/rebuild")
+    public String rebuildAnalytics() {
+        logger.info("Rebuilding sales analytics");
+        salesAnalyticsService.rebuild();
+        return "redirect:/admin/analytics";
+    }
+
+    // Resolved through the id carried by the principal, from the users cache when possible
+    private User currentUser(Authentication auth) {
+        if (auth == null || !(auth.getPrincipal() instanceof UserPrincipal principal)) {
+            return null;
+        }
+        return userService.getUserById(principal.getId()).orElse(null);
+    }
 }
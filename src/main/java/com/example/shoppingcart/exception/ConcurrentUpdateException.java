@@ -0,0 +1,7 @@
+package com.example.shoppingcart.exception;
+
+public class ConcurrentUpdateException extends ServiceException {
+    public ConcurrentUpdateException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
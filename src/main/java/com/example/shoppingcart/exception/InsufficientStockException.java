@@ -0,0 +1,7 @@
+package com.example.shoppingcart.exception;
+
+public class InsufficientStockException extends ServiceException {
+    public InsufficientStockException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.shoppingcart.exception;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+// Thrown when the password verification pool is saturated; the login is answered with 503
+// and Retry-After instead of queueing behind the spike
+public class LoginThrottledException extends AuthenticationServiceException {
+    public LoginThrottledException(String message) {
+        super(message);
+    }
+
+    public LoginThrottledException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.shoppingcart.exception;
+
+public class PriceChangedException extends ServiceException {
+    public PriceChangedException(String message) {
+        super(message);
+    }
+}
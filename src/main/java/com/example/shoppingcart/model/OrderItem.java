@@ -6,15 +6,17 @@ import jakarta.persistence.*;
 @Table(name = "order_items")
 public class OrderItem {
 
+    // IDENTITY is kept: lines are inserted by OrderJdbcRepository's batch rather than by Hibernate,
+    // so a pooled/hi-lo generator would save no round trips (see "Order Placement" in the README)
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "order_id", nullable = false)
     private Order order;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
 
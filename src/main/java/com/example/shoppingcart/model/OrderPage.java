@@ -0,0 +1,35 @@
+package com.example.shoppingcart.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class OrderPage {
+
+    private final List<Order> items;
+    private final boolean hasNext;
+    private final LocalDateTime nextBeforeDate;
+    private final Long nextBeforeId;
+
+    public OrderPage(List<Order> items, boolean hasNext, LocalDateTime nextBeforeDate, Long nextBeforeId) {
+        this.items = items;
+        this.hasNext = hasNext;
+        this.nextBeforeDate = nextBeforeDate;
+        this.nextBeforeId = nextBeforeId;
+    }
+
+    public List<Order> getItems() {
+        return items;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public LocalDateTime getNextBeforeDate() {
+        return nextBeforeDate;
+    }
+
+    public Long getNextBeforeId() {
+        return nextBeforeId;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.shoppingcart.model;
+
+// One pending delivery of an event to one handler, as read back from the outbox table
+public class OutboxEvent {
+
+    private final long id;
+    private final String eventType;
+    private final long aggregateId;
+    private final String payload;
+    private final String handler;
+    private final int attempts;
+    private final long createdAt;
+
+    public OutboxEvent(long id, String eventType, long aggregateId, String payload, String handler,
+                       int attempts, long createdAt) {
+        this.id = id;
+        this.eventType = eventType;
+        this.aggregateId = aggregateId;
+        this.payload = payload;
+        this.handler = handler;
+        this.attempts = attempts;
+        this.createdAt = createdAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public long getAggregateId() {
+        return aggregateId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public String getHandler() {
+        return handler;
+    }
+
+    // Including the attempt in progress
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+}
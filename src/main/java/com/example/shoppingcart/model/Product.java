@@ -4,10 +4,17 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_price_id", columnList = "price, id"),
+        @Index(name = "idx_products_name", columnList = "name")
+})
 public class Product {
 
     @Id
@@ -19,6 +26,21 @@ public class Product {
     private double price;
     private String imageUrl;
 
+    // Units available to sell; null means the product is not inventory tracked
+    private Integer stock;
+
+    // Epoch millis of the last change, returned with the product. Not used as a validator: the
+    // catalog's ETags come from version, and no Last-Modified is sent, since its whole seconds
+    // would let If-Modified-Since hide a second write within the same second. Also bumped by
+    // the stock UPDATE at checkout, which bypasses JPA.
+    private Long updatedAt;
+
+    // Optimistic lock: edits carry the version they were made from and fail if a checkout or
+    // another edit changed the product since, instead of writing back a stale stock count.
+    // The checkout stock UPDATE increments it as well.
+    @Version
+    private Long version;
+
     public Product() {
     }
 
@@ -29,6 +51,11 @@ public class Product {
         this.imageUrl = imageUrl;
     }
 
+    public Product(String name, String description, double price, String imageUrl, Integer stock) {
+        this(name, description, price, imageUrl);
+        this.stock = stock;
+    }
+
     public Long getId() {
         return id;
     }
@@ -68,4 +95,34 @@ public class Product {
     public void setImageUrl(String imageUrl) {
         this.imageUrl = imageUrl;
     }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public void setStock(Integer stock) {
+        this.stock = stock;
+    }
+
+    public Long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = System.currentTimeMillis();
+    }
 }
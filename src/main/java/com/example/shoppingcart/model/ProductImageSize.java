@@ -0,0 +1,46 @@
+package com.example.shoppingcart.model;
+
+// Renditions served by /images/products/{id}/{size}. Cards are cropped to fill the frame, like
+// the object-fit: cover the templates used on the original; detail images keep their aspect
+// ratio within the bounds. Sizes are twice the CSS size for high-density screens.
+public enum ProductImageSize {
+
+    CARD(800, 500, true),
+    DETAIL(1200, 1200, false);
+
+    private final int width;
+    private final int height;
+    private final boolean crop;
+
+    ProductImageSize(int width, int height, boolean crop) {
+        this.width = width;
+        this.height = height;
+        this.crop = crop;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean isCrop() {
+        return crop;
+    }
+
+    public String getPath() {
+        return name().toLowerCase();
+    }
+
+    // null when there is no such size
+    public static ProductImageSize fromPath(String path) {
+        for (ProductImageSize size : values()) {
+            if (size.getPath().equals(path)) {
+                return size;
+            }
+        }
+        return null;
+    }
+}
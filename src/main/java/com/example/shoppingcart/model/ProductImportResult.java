@@ -0,0 +1,71 @@
+package com.example.shoppingcart.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductImportResult {
+
+    // Only the first rejections are listed; all of them are counted
+    public static final int MAX_REPORTED_ERRORS = 100;
+
+    private long received;
+    private long imported;
+    private long rejected;
+    private final List<String> errors = new ArrayList<>();
+    private boolean completed;
+    private String failure;
+    private long elapsedMs;
+
+    public void received() {
+        received++;
+    }
+
+    public void imported(int count) {
+        imported += count;
+    }
+
+    public void reject(long record, String reason) {
+        rejected++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add("record " + record + ": " + reason);
+        }
+    }
+
+    public void complete(long elapsedMs) {
+        this.completed = true;
+        this.elapsedMs = elapsedMs;
+    }
+
+    public void fail(String failure, long elapsedMs) {
+        this.failure = failure;
+        this.elapsedMs = elapsedMs;
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+}
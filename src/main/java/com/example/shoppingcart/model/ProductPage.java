@@ -0,0 +1,39 @@
+package com.example.shoppingcart.model;
+
+import java.util.List;
+
+// Immutable: cached pages are shared by every request
+public class ProductPage {
+
+    private final List<ProductSummary> items;
+    private final boolean hasNext;
+    private final Long nextAfterId;
+    private final Double nextAfterPrice;
+
+    public ProductPage(List<ProductSummary> items, boolean hasNext, Long nextAfterId, Double nextAfterPrice) {
+        this.items = List.copyOf(items);
+        this.hasNext = hasNext;
+        this.nextAfterId = nextAfterId;
+        this.nextAfterPrice = nextAfterPrice;
+    }
+
+    public List<ProductSummary> getItems() {
+        return items;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public Long getNextAfterId() {
+        return nextAfterId;
+    }
+
+    public Double getNextAfterPrice() {
+        return nextAfterPrice;
+    }
+
+    public int getSize() {
+        return items.size();
+    }
+}
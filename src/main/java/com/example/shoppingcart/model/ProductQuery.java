@@ -0,0 +1,104 @@
+package com.example.shoppingcart.model;
+
+import java.util.Objects;
+
+public class ProductQuery {
+
+    public static final String SORT_BY_ID = "id";
+    public static final String SORT_BY_PRICE = "price";
+
+    private String sort = SORT_BY_ID;
+    private Long afterId;
+    private Double afterPrice;
+    private Double minPrice;
+    private Double maxPrice;
+    private String name;
+    private Integer size;
+
+    public ProductQuery() {
+    }
+
+    public boolean isSortByPrice() {
+        return SORT_BY_PRICE.equalsIgnoreCase(sort);
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public void setSort(String sort) {
+        this.sort = sort;
+    }
+
+    public Long getAfterId() {
+        return afterId;
+    }
+
+    public void setAfterId(Long afterId) {
+        this.afterId = afterId;
+    }
+
+    public Double getAfterPrice() {
+        return afterPrice;
+    }
+
+    public void setAfterPrice(Double afterPrice) {
+        this.afterPrice = afterPrice;
+    }
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(Double minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(Double maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public void setSize(Integer size) {
+        this.size = size;
+    }
+
+    // Used as the product page cache key
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ProductQuery)) {
+            return false;
+        }
+        ProductQuery that = (ProductQuery) o;
+        return Objects.equals(sort, that.sort)
+                && Objects.equals(afterId, that.afterId)
+                && Objects.equals(afterPrice, that.afterPrice)
+                && Objects.equals(minPrice, that.minPrice)
+                && Objects.equals(maxPrice, that.maxPrice)
+                && Objects.equals(name, that.name)
+                && Objects.equals(size, that.size);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sort, afterId, afterPrice, minPrice, maxPrice, name, size);
+    }
+}
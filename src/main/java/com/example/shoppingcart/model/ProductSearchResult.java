@@ -0,0 +1,28 @@
+package com.example.shoppingcart.model;
+
+import java.util.List;
+
+public class ProductSearchResult {
+
+    private final String query;
+    private final List<Product> items;
+    private final int totalHits;
+
+    public ProductSearchResult(String query, List<Product> items, int totalHits) {
+        this.query = query;
+        this.items = items;
+        this.totalHits = totalHits;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public List<Product> getItems() {
+        return items;
+    }
+
+    public int getTotalHits() {
+        return totalHits;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.shoppingcart.model;
+
+// Read-only copy of a Product for catalog pages. Pages are cached and shared by every request,
+// so they hold these instead of entities a caller could modify or re-attach. Same properties
+// as Product, so templates and JSON see no difference.
+public final class ProductSummary {
+
+    private final Long id;
+    private final String name;
+    private final String description;
+    private final double price;
+    private final String imageUrl;
+    private final Integer stock;
+    private final Long updatedAt;
+    private final Long version;
+
+    private ProductSummary(Product product) {
+        this.id = product.getId();
+        this.name = product.getName();
+        this.description = product.getDescription();
+        this.price = product.getPrice();
+        this.imageUrl = product.getImageUrl();
+        this.stock = product.getStock();
+        this.updatedAt = product.getUpdatedAt();
+        this.version = product.getVersion();
+    }
+
+    public static ProductSummary of(Product product) {
+        return new ProductSummary(product);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public Long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.shoppingcart.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+public class SalesSummary {
+
+    public static class Day {
+        private final LocalDate day;
+        private final long orders;
+        private final long units;
+        private final BigDecimal revenue;
+
+        public Day(LocalDate day, long orders, long units, BigDecimal revenue) {
+            this.day = day;
+            this.orders = orders;
+            this.units = units;
+            this.revenue = revenue;
+        }
+
+        public LocalDate getDay() {
+            return day;
+        }
+
+        public long getOrders() {
+            return orders;
+        }
+
+        public long getUnits() {
+            return units;
+        }
+
+        public BigDecimal getRevenue() {
+            return revenue;
+        }
+    }
+
+    public static class ProductSales {
+        private final Long productId;
+        private final long orders;
+        private final long units;
+        private final BigDecimal revenue;
+        private String productName;
+
+        public ProductSales(Long productId, long orders, long units, BigDecimal revenue) {
+            this.productId = productId;
+            this.orders = orders;
+            this.units = units;
+            this.revenue = revenue;
+        }
+
+        public Long getProductId() {
+            return productId;
+        }
+
+        public long getOrders() {
+            return orders;
+        }
+
+        public long getUnits() {
+            return units;
+        }
+
+        public BigDecimal getRevenue() {
+            return revenue;
+        }
+
+        public String getProductName() {
+            return productName;
+        }
+
+        public void setProductName(String productName) {
+            this.productName = productName;
+        }
+    }
+
+    private final LocalDate from;
+    private final LocalDate to;
+    private final List<Day> days;
+    private final long orders;
+    private final BigDecimal revenue;
+    private final List<ProductSales> topProducts;
+    private final Map<String, Long> ordersByStatus;
+
+    public SalesSummary(LocalDate from, LocalDate to, List<Day> days, List<ProductSales> topProducts,
+                        Map<String, Long> ordersByStatus) {
+        this.from = from;
+        this.to = to;
+        this.days = days;
+        this.topProducts = topProducts;
+        this.ordersByStatus = ordersByStatus;
+        long orderCount = 0;
+        BigDecimal total = BigDecimal.ZERO;
+        for (Day day : days) {
+            orderCount += day.getOrders();
+            total = total.add(day.getRevenue());
+        }
+        this.orders = orderCount;
+        this.revenue = total;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public List<Day> getDays() {
+        return days;
+    }
+
+    public long getOrders() {
+        return orders;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public List<ProductSales> getTopProducts() {
+        return topProducts;
+    }
+
+    public Map<String, Long> getOrdersByStatus() {
+        return ordersByStatus;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.shoppingcart.model;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+
+// Authenticated principal that carries the user's id, so pages can resolve the User
+// without looking it up by username again
+public class UserPrincipal extends org.springframework.security.core.userdetails.User {
+
+    private final Long id;
+
+    public UserPrincipal(Long id, String username, String password, Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, authorities);
+        this.id = id;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.shoppingcart.repository;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compact binary form of a cart: only (productId, quantity) pairs are stored, as unsigned varints.
+ * <pre>
+ * version:byte | itemCount:varint | lineCount:varint | (productId:varint quantity:varint)*
+ * </pre>
+ * The total item count sits in the header so the cart badge can be read without decoding the lines.
+ */
+public final class CartCodec {
+
+    private static final byte VERSION = 1;
+
+    private CartCodec() {
+    }
+
+    public static byte[] encode(Map<Long, Integer> lines) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(3 + lines.size() * 4);
+        long itemCount = 0;
+        for (int quantity : lines.values()) {
+            itemCount += quantity;
+        }
+        out.write(VERSION);
+        writeVarint(out, itemCount);
+        writeVarint(out, lines.size());
+        for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+            writeVarint(out, line.getKey());
+            writeVarint(out, line.getValue());
+        }
+        return out.toByteArray();
+    }
+
+    public static LinkedHashMap<Long, Integer> decode(byte[] data) {
+        LinkedHashMap<Long, Integer> lines = new LinkedHashMap<>();
+        if (data == null || data.length == 0) {
+            return lines;
+        }
+        try {
+            ByteBuffer in = header(data);
+            readVarint(in);
+            int lineCount = (int) readVarint(in);
+            for (int i = 0; i < lineCount; i++) {
+                long productId = readVarint(in);
+                int quantity = (int) readVarint(in);
+                lines.put(productId, quantity);
+            }
+            return lines;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated cart data", e);
+        }
+    }
+
+    public static int readItemCount(byte[] data) {
+        if (data == null || data.length == 0) {
+            return 0;
+        }
+        try {
+            return (int) readVarint(header(data));
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated cart data", e);
+        }
+    }
+
+    private static ByteBuffer header(byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported cart data version: " + version);
+        }
+        return in;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in cart data");
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.shoppingcart.repository;
+
+/**
+ * Storage for encoded carts, keyed by the cart id carried in the visitor's cookie.
+ * Implementations must be safe to share between requests and nodes.
+ */
+public interface CartStore {
+
+    /**
+     * @return the encoded cart, or {@code null} if there is none
+     */
+    byte[] load(String cartId);
+
+    void save(String cartId, byte[] data);
+
+    void delete(String cartId);
+}
@@ -0,0 +1,47 @@
+package com.example.shoppingcart.repository;
+
+import com.example.shoppingcart.config.MetricsConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+
+@Repository
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "memory", matchIfMissing = true)
+@Timed(MetricsConfig.REPOSITORY_TIMER)
+public class InMemoryCartStore implements CartStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryCartStore.class);
+
+    private final Cache<String, byte[]> carts;
+
+    public InMemoryCartStore(@Value("${app.cart.max-carts:100000}") long maxCarts,
+                             @Value("${app.cart.ttl:30d}") Duration ttl) {
+        logger.info("Using in-memory cart store (max {} carts, idle ttl {})", maxCarts, ttl);
+        this.carts = Caffeine.newBuilder()
+                .maximumSize(maxCarts)
+                .expireAfterAccess(ttl)
+                .build();
+    }
+
+    @Override
+    public byte[] load(String cartId) {
+        return carts.getIfPresent(cartId);
+    }
+
+    @Override
+    public void save(String cartId, byte[] data) {
+        carts.put(cartId, data);
+    }
+
+    @Override
+    public void delete(String cartId) {
+        carts.invalidate(cartId);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.shoppingcart.repository;
+
+import com.example.shoppingcart.config.MetricsConfig;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.List;
+
+// Carts expire like the in-memory store's: once idle for longer than the ttl. Loads refresh
+// updated_at, but at most once per TOUCH_DIVISOR-th of the ttl so that reading a cart rarely
+// writes, and a scheduled purge deletes the expired rows.
+@Repository
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "jdbc")
+@Timed(MetricsConfig.REPOSITORY_TIMER)
+public class JdbcCartStore implements CartStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcCartStore.class);
+
+    private static final int TOUCH_DIVISOR = 30;
+    private static final int PURGE_BATCH_SIZE = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.cart.ttl:30d}")
+    private Duration ttl;
+
+    @PostConstruct
+    public void init() {
+        logger.info("Using JDBC cart store (idle ttl {})", ttl);
+    }
+
+    @Override
+    public byte[] load(String cartId) {
+        long now = System.currentTimeMillis();
+        List<Object[]> rows = jdbcTemplate.query("SELECT data, updated_at FROM carts WHERE cart_id = ?",
+                (rs, rowNum) -> new Object[]{rs.getBytes(1), rs.getLong(2)}, cartId);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        long updatedAt = (Long) rows.get(0)[1];
+        if (updatedAt < now - ttl.toMillis()) {
+            // Expired but not purged yet
+            return null;
+        }
+        if (updatedAt < now - ttl.toMillis() / TOUCH_DIVISOR) {
+            jdbcTemplate.update("UPDATE carts SET updated_at = ? WHERE cart_id = ? AND updated_at = ?", now, cartId, updatedAt);
+        }
+        return (byte[]) rows.get(0)[0];
+    }
+
+    @Override
+    public void save(String cartId, byte[] data) {
+        long now = System.currentTimeMillis();
+        int updated = jdbcTemplate.update("UPDATE carts SET data = ?, updated_at = ? WHERE cart_id = ?", data, now, cartId);
+        if (updated == 0) {
+            try {
+                jdbcTemplate.update("INSERT INTO carts (cart_id, data, updated_at) VALUES (?, ?, ?)", cartId, data, now);
+            } catch (DuplicateKeyException e) {
+                // Another request created the row first; last write wins
+                jdbcTemplate.update("UPDATE carts SET data = ?, updated_at = ? WHERE cart_id = ?", data, now, cartId);
+            }
+        }
+    }
+
+    @Override
+    public void delete(String cartId) {
+        jdbcTemplate.update("DELETE FROM carts WHERE cart_id = ?", cartId);
+    }
+
+    /**
+     * Deletes carts idle for longer than the ttl, in batches so no statement holds many row locks.
+     *
+     * @return the number of carts deleted
+     */
+    @Scheduled(fixedDelayString = "${app.cart.purge-interval-ms:3600000}", initialDelayString = "${app.cart.purge-interval-ms:3600000}")
+    public int purgeExpired() {
+        long cutoff = System.currentTimeMillis() - ttl.toMillis();
+        int purged = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("DELETE FROM carts WHERE updated_at < ? LIMIT " + PURGE_BATCH_SIZE, cutoff);
+            purged += deleted;
+        } while (deleted == PURGE_BATCH_SIZE);
+        if (purged > 0) {
+            logger.info("Purged {} carts idle for more than {}", purged, ttl);
+        }
+        return purged;
+    }
+}
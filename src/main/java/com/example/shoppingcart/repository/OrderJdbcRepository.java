@@ -0,0 +1,85 @@
+package com.example.shoppingcart.repository;
+
+import com.example.shoppingcart.config.MetricsConfig;
+import com.example.shoppingcart.model.OrderItem;
+import com.example.shoppingcart.model.OrderQuery;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+// Order lines are written with plain JDBC batches: OrderItem uses IDENTITY ids, which makes
+// Hibernate insert them one statement at a time.
+@Repository
+@Timed(MetricsConfig.REPOSITORY_TIMER)
+public class OrderJdbcRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.orders.batch-size:100}")
+    private int batchSize;
+
+    public void insertItems(Long orderId, List<OrderItem> items) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO order_items (order_id, product_id, quantity, price) VALUES (?, ?, ?, ?)",
+                items, batchSize, (ps, item) -> {
+                    ps.setLong(1, orderId);
+                    ps.setLong(2, item.getProduct().getId());
+                    ps.setInt(3, item.getQuantity());
+                    ps.setDouble(4, item.getPrice());
+                });
+    }
+
+    /**
+     * Reads the orders matching the query, oldest first, with one row per order line (orders
+     * without lines appear once with null line columns). Rows of an order are adjacent, its lines
+     * in id order. The result goes through a forward-only cursor, fetchSize rows per round trip
+     * with useCursorFetch=true, so no part of the result is held beyond the row being handled.
+     */
+    public void streamLines(OrderQuery query, int fetchSize, RowCallbackHandler handler) {
+        // Like OrderRepositoryImpl.search, only the filters that are set become predicates
+        StringBuilder sql = new StringBuilder(
+                "SELECT o.id AS order_id, o.order_date, o.status, o.total_amount, u.username,"
+                        + " i.id AS item_id, i.product_id, p.name AS product_name, i.quantity, i.price"
+                        + " FROM orders o JOIN users u ON u.id = o.user_id"
+                        + " LEFT JOIN order_items i ON i.order_id = o.id"
+                        + " LEFT JOIN products p ON p.id = i.product_id WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (query.getStatus() != null && !query.getStatus().isBlank()) {
+            sql.append(" AND o.status = ?");
+            params.add(query.getStatus());
+        }
+        if (query.getUsername() != null && !query.getUsername().isBlank()) {
+            sql.append(" AND u.username = ?");
+            params.add(query.getUsername().trim());
+        }
+        if (query.getFrom() != null) {
+            sql.append(" AND o.order_date >= ?");
+            params.add(Timestamp.valueOf(query.getFrom().atStartOfDay()));
+        }
+        if (query.getTo() != null) {
+            sql.append(" AND o.order_date < ?");
+            params.add(Timestamp.valueOf(query.getTo().plusDays(1).atStartOfDay()));
+        }
+        // The join promises no order for an order's lines, so they are sorted by id as well
+        sql.append(" ORDER BY o.order_date, o.id, i.id");
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            return ps;
+        }, handler);
+    }
+}
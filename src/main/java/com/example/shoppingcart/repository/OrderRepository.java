@@ -2,13 +2,19 @@ package com.example.shoppingcart.repository;
 
 import com.example.shoppingcart.model.Order;
 import com.example.shoppingcart.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
-    List<Order> findByUserOrderByOrderDateDesc(User user);
-    List<Order> findAllByOrderByOrderDateDesc();
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
+
+    Slice<Order> findByUser(User user, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"user", "items", "items.product"})
+    Optional<Order> findWithItemsById(Long id);
 }
@@ -0,0 +1,17 @@
+package com.example.shoppingcart.repository;
+
+import com.example.shoppingcart.model.Order;
+import com.example.shoppingcart.model.OrderQuery;
+
+import java.util.List;
+
+public interface OrderRepositoryCustom {
+
+    /**
+     * Orders matching the query's filters, newest first (ties by id), starting after the
+     * query's keyset cursor, with their users fetched.
+     *
+     * @param limit maximum number of orders to return
+     */
+    List<Order> search(OrderQuery query, int limit);
+}
@@ -0,0 +1,67 @@
+package com.example.shoppingcart.repository;
+
+import com.example.shoppingcart.model.Order;
+import com.example.shoppingcart.model.OrderQuery;
+import com.example.shoppingcart.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Fetch;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class OrderRepositoryImpl implements OrderRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Only the filters that are set become predicates, so each combination can use the
+    // (status, order_date) or (user_id, order_date) index instead of an "OR :param IS NULL" scan.
+    // Pages continue from a (order_date, id) cursor rather than an offset, so a deep page reads
+    // no more rows than the first; InnoDB secondary indexes end with the primary key, which
+    // makes them (status, order_date, id) and (user_id, order_date, id).
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Order> search(OrderQuery query, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Order> cq = cb.createQuery(Order.class);
+        Root<Order> order = cq.from(Order.class);
+        Fetch<Order, User> userFetch = order.fetch("user");
+        Join<Order, User> user = (Join<Order, User>) userFetch;
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (query.getStatus() != null && !query.getStatus().isBlank()) {
+            predicates.add(cb.equal(order.get("status"), query.getStatus()));
+        }
+        if (query.getUsername() != null && !query.getUsername().isBlank()) {
+            predicates.add(cb.equal(user.get("username"), query.getUsername().trim()));
+        }
+        if (query.getFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(order.get("orderDate"), query.getFrom().atStartOfDay()));
+        }
+        if (query.getTo() != null) {
+            LocalDateTime endExclusive = query.getTo().plusDays(1).atStartOfDay();
+            predicates.add(cb.lessThan(order.get("orderDate"), endExclusive));
+        }
+        if (query.getBeforeDate() != null && query.getBeforeId() != null) {
+            predicates.add(cb.or(
+                    cb.lessThan(order.get("orderDate"), query.getBeforeDate()),
+                    cb.and(cb.equal(order.get("orderDate"), query.getBeforeDate()),
+                            cb.lessThan(order.get("id"), query.getBeforeId()))));
+        }
+
+        cq.select(order)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.desc(order.get("orderDate")), cb.desc(order.get("id")));
+
+        return entityManager.createQuery(cq)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.shoppingcart.repository;
+
+import com.example.shoppingcart.config.MetricsConfig;
+import com.example.shoppingcart.model.OutboxEvent;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Transactional outbox: events are inserted by the transaction that produced them, one row per
+// handler, and deleted once that handler has run. Rows that keep failing stay behind as FAILED.
+// Claiming is a conditional UPDATE on available_at, so several dispatchers can poll the same
+// table without delivering a row twice at the same time.
+@Repository
+@Timed(MetricsConfig.REPOSITORY_TIMER)
+public class OutboxRepository {
+
+    public static final String PENDING = "PENDING";
+    public static final String FAILED = "FAILED";
+
+    // Payloads carry ids and a few fields, not whole aggregates, so they stay inline in the row.
+    // Both lengths are the column sizes in db/migration.
+    public static final int MAX_PAYLOAD_LENGTH = 2000;
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds one row per handler in a single batch. Must run in the caller's transaction so the
+     * event is committed, or rolled back, together with the change it describes.
+     */
+    public void insert(String eventType, long aggregateId, String payload, List<String> handlers) {
+        long now = System.currentTimeMillis();
+        List<Object[]> rows = new ArrayList<>(handlers.size());
+        for (String handler : handlers) {
+            rows.add(new Object[]{eventType, aggregateId, payload, handler, PENDING, now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO outbox_events"
+                + " (event_type, aggregate_id, payload, handler, status, attempts, available_at, created_at)"
+                + " VALUES (?, ?, ?, ?, ?, 0, ?, ?)", rows);
+    }
+
+    /**
+     * Claims up to {@code limit} due rows, oldest first, by pushing their available_at out to
+     * {@code leaseUntil} and counting the attempt. A dispatcher that dies mid-batch leaves its
+     * rows to be picked up again once the lease runs out.
+     *
+     * @return the rows this caller claimed; rows claimed concurrently by another dispatcher are left out
+     */
+    public List<OutboxEvent> claimDue(long now, long leaseUntil, int limit) {
+        List<long[]> candidates = new ArrayList<>();
+        List<OutboxEvent> events = jdbcTemplate.query("SELECT id, event_type, aggregate_id, payload, handler, attempts,"
+                        + " available_at, created_at FROM outbox_events WHERE status = ? AND available_at <= ?"
+                        + " ORDER BY available_at LIMIT ?",
+                (rs, rowNum) -> {
+                    candidates.add(new long[]{rs.getLong("id"), rs.getLong("available_at")});
+                    return new OutboxEvent(rs.getLong("id"), rs.getString("event_type"), rs.getLong("aggregate_id"),
+                            rs.getString("payload"), rs.getString("handler"), rs.getInt("attempts") + 1,
+                            rs.getLong("created_at"));
+                },
+                PENDING, now, limit);
+        if (events.isEmpty()) {
+            return events;
+        }
+        List<Object[]> claims = new ArrayList<>(candidates.size());
+        for (long[] candidate : candidates) {
+            claims.add(new Object[]{leaseUntil, candidate[0], PENDING, candidate[1]});
+        }
+        int[] counts = jdbcTemplate.batchUpdate("UPDATE outbox_events SET available_at = ?, attempts = attempts + 1"
+                + " WHERE id = ? AND status = ? AND available_at = ?", claims);
+        List<OutboxEvent> claimed = new ArrayList<>(events.size());
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                claimed.add(events.get(i));
+            }
+        }
+        return claimed;
+    }
+
+    public void delete(List<Long> ids) {
+        List<Object[]> rows = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            rows.add(new Object[]{id});
+        }
+        jdbcTemplate.batchUpdate("DELETE FROM outbox_events WHERE id = ?", rows);
+    }
+
+    public void scheduleRetry(long id, long availableAt, String error) {
+        jdbcTemplate.update("UPDATE outbox_events SET available_at = ?, last_error = ? WHERE id = ?",
+                availableAt, truncate(error), id);
+    }
+
+    public void markFailed(long id, String error) {
+        jdbcTemplate.update("UPDATE outbox_events SET status = ?, last_error = ? WHERE id = ?",
+                FAILED, truncate(error), id);
+    }
+
+    // Puts FAILED rows back in the queue with a fresh attempt count, e.g. after fixing a handler
+    public int requeueFailed() {
+        return jdbcTemplate.update("UPDATE outbox_events SET status = ?, attempts = 0, available_at = ? WHERE status = ?",
+                PENDING, System.currentTimeMillis(), FAILED);
+    }
+
+    public long countByStatus(String status) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events WHERE status = ?", Long.class, status);
+        return count == null ? 0 : count;
+    }
+
+    private static String truncate(String error) {
+        if (error == null || error.length() <= MAX_ERROR_LENGTH) {
+            return error;
+        }
+        return error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.shoppingcart.repository;
+
+import com.example.shoppingcart.config.MetricsConfig;
+import com.example.shoppingcart.model.ProductImageSize;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+// Resized product images on local disk, one file per product, size and source URL, capped at
+// app.images.cache.max-size by evicting the least recently served. The index lives in memory
+// and is rebuilt from the directory on startup; files leave the disk when they are evicted,
+// replaced or invalidated. Every write gets a new file name, so a file that is being sent is
+// never overwritten in place, and the image just written is never the one evicted for it.
+@Repository
+@Timed(MetricsConfig.REPOSITORY_TIMER)
+public class ProductImageStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImageStore.class);
+
+    private static final String EXTENSION = ".jpg";
+    private static final String TEMP_PREFIX = "image-";
+
+    public static class StoredImage {
+        private final Path path;
+        private final long length;
+        private final String sourceHash;
+
+        StoredImage(Path path, long length, String sourceHash) {
+            this.path = path;
+            this.length = length;
+            this.sourceHash = sourceHash;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        // Changes with every write, so it doubles as a strong validator
+        public String getETag() {
+            String name = path.getFileName().toString();
+            return "\"" + name.substring(0, name.length() - EXTENSION.length()) + "\"";
+        }
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+    // Access order: iteration starts at the least recently used. Guarded by itself.
+    private final LinkedHashMap<String, StoredImage> images = new LinkedHashMap<>(1024, 0.75f, true);
+    private long totalBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public ProductImageStore(@Value("${app.images.cache.dir:${java.io.tmpdir}/shoppingcart-images}") Path directory,
+                             @Value("${app.images.cache.max-size:512MB}") DataSize maxSize,
+                             MeterRegistry meterRegistry) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxSize.toBytes();
+        this.hits = meterRegistry.counter(MetricsConfig.IMAGE_CACHE, "result", "hit");
+        this.misses = meterRegistry.counter(MetricsConfig.IMAGE_CACHE, "result", "miss");
+        Gauge.builder(MetricsConfig.IMAGE_CACHE_SIZE, this, store -> store.size())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        load();
+    }
+
+    /**
+     * @param sourceHash hash of the image URL the file was made from; an image made from another
+     *                   URL is not returned
+     * @return null when there is no such image
+     */
+    public StoredImage get(long productId, ProductImageSize size, String sourceHash) {
+        String key = key(productId, size);
+        StoredImage image;
+        synchronized (images) {
+            image = images.get(key);
+        }
+        if (image == null || !image.sourceHash.equals(sourceHash)) {
+            misses.increment();
+            return null;
+        }
+        if (!Files.isReadable(image.path)) {
+            // Removed behind our back, e.g. by a tmp cleaner
+            remove(key, image);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return image;
+    }
+
+    public StoredImage put(long productId, ProductImageSize size, String sourceHash, byte[] data) throws IOException {
+        String name = key(productId, size) + "-" + sourceHash + "-"
+                + Long.toHexString(ThreadLocalRandom.current().nextLong()) + EXTENSION;
+        Path temp = Files.createTempFile(directory, TEMP_PREFIX, ".tmp");
+        try {
+            Files.write(temp, data);
+            Path path = Files.move(temp, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+            StoredImage image = new StoredImage(path, data.length, sourceHash);
+            add(key(productId, size), image);
+            return image;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public void invalidate(long productId) {
+        for (ProductImageSize size : ProductImageSize.values()) {
+            remove(key(productId, size), null);
+        }
+    }
+
+    private void add(String key, StoredImage image) {
+        List<StoredImage> removed = new ArrayList<>();
+        synchronized (images) {
+            StoredImage replaced = images.put(key, image);
+            if (replaced != null) {
+                totalBytes -= replaced.length;
+                removed.add(replaced);
+            }
+            totalBytes += image.length;
+            Iterator<StoredImage> eldest = images.values().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                StoredImage evicted = eldest.next();
+                if (evicted == image) {
+                    break;
+                }
+                eldest.remove();
+                totalBytes -= evicted.length;
+                removed.add(evicted);
+            }
+        }
+        for (StoredImage old : removed) {
+            delete(old.path);
+        }
+    }
+
+    // expected: only remove this entry; null for whatever is there
+    private void remove(String key, StoredImage expected) {
+        StoredImage removed;
+        synchronized (images) {
+            removed = expected == null ? images.remove(key) : (images.remove(key, expected) ? expected : null);
+            if (removed != null) {
+                totalBytes -= removed.length;
+            }
+        }
+        if (removed != null) {
+            delete(removed.path);
+        }
+    }
+
+    private long size() {
+        synchronized (images) {
+            return totalBytes;
+        }
+    }
+
+    // Files from the previous run, oldest first, so the newest copy of an image wins and the
+    // oldest are evicted if the cap has shrunk
+    private void load() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> list = Files.list(directory)) {
+            list.forEach(files::add);
+        }
+        files.sort(Comparator.comparing(ProductImageStore::lastModified));
+        int loaded = 0;
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            String[] parts = name.split("-");
+            if (name.startsWith(TEMP_PREFIX) && name.endsWith(".tmp")) {
+                // Left over from a write that was cut short
+                delete(file);
+                continue;
+            }
+            if (!name.endsWith(EXTENSION) || parts.length != 4 || !parts[0].matches("\\d+")
+                    || ProductImageSize.fromPath(parts[1]) == null) {
+                continue;
+            }
+            add(parts[0] + "-" + parts[1], new StoredImage(file, Files.size(file), parts[2]));
+            loaded++;
+        }
+        logger.info("Product image cache at {}: {} images ({} KB) from the previous run", directory, loaded, size() / 1024);
+    }
+
+    private static String key(long productId, ProductImageSize size) {
+        return productId + "-" + size.getPath();
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete cached image {}: {}", file, e.getMessage());
+        }
+    }
+}
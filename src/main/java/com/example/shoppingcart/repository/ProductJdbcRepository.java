@@ -0,0 +1,185 @@
+package com.example.shoppingcart.repository;
+
+import com.example.shoppingcart.config.MetricsConfig;
+import com.example.shoppingcart.model.Product;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+@Repository
+@Timed(MetricsConfig.REPOSITORY_TIMER)
+public class ProductJdbcRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Decrements stock for every product in one batch of conditional updates. A row is only
+     * touched if it has enough stock (or is not inventory tracked), so no read-then-write
+     * race exists and no lock is taken before the update itself.
+     *
+     * @return ids of the products that did not have enough stock
+     */
+    public List<Long> reserveStock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // Lock rows in id order so concurrent multi-line orders cannot deadlock each other
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>(new TreeMap<>(quantities).entrySet());
+        long now = System.currentTimeMillis();
+        int[] counts = jdbcTemplate.batchUpdate(
+                // updated_at and version only move for tracked products, whose representation (stock) changed
+                "UPDATE products SET stock = stock - ?, updated_at = CASE WHEN stock IS NULL THEN updated_at ELSE ? END,"
+                        + " version = CASE WHEN stock IS NULL THEN version ELSE version + 1 END"
+                        + " WHERE id = ? AND (stock IS NULL OR stock >= ?)",
+                lines, lines.size(), (ps, line) -> {
+                    ps.setInt(1, line.getValue());
+                    ps.setLong(2, now);
+                    ps.setLong(3, line.getKey());
+                    ps.setInt(4, line.getValue());
+                })[0];
+
+        List<Long> rejected = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                rejected.add(lines.get(i).getKey());
+            }
+        }
+        return rejected;
+    }
+
+    // Run after reserveStock in the same transaction: the rows are still locked, so the answer is exact
+    public List<Long> findSoldOut(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return jdbcTemplate.queryForList("SELECT id FROM products WHERE stock = 0 AND id IN (" + placeholders + ")",
+                Long.class, ids.toArray());
+    }
+
+    /**
+     * Writes one batch of imported products. Rows with an id and a version replace that version
+     * of the product, as one conditional UPDATE each, so an import never writes back a stock
+     * count that a checkout has decremented since the export it was made from. Rows with an id
+     * but no version are added under that id unless the product exists, and rows without an id
+     * are added. Inserts are single batched statements, which rewriteBatchedStatements turns into
+     * multi-row INSERTs on MySQL.
+     *
+     * @return positions in products of the rows that were not written, in ascending order: a
+     *         stale or unknown version, or an existing id
+     */
+    public List<Integer> upsert(List<Product> products) {
+        List<Integer> replace = new ArrayList<>();
+        List<Integer> withId = new ArrayList<>();
+        List<Product> withoutId = new ArrayList<>();
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            if (product.getId() == null) {
+                withoutId.add(product);
+            } else {
+                (product.getVersion() != null ? replace : withId).add(i);
+            }
+        }
+        List<Integer> skipped = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        if (!replace.isEmpty()) {
+            int[] counts = jdbcTemplate.batchUpdate(
+                    "UPDATE products SET name = ?, description = ?, price = ?, image_url = ?, stock = ?, updated_at = ?,"
+                            + " version = version + 1 WHERE id = ? AND version = ?",
+                    replace, replace.size(), (ps, i) -> {
+                        Product product = products.get(i);
+                        productSetter(now).setValues(ps, product);
+                        ps.setLong(8, product.getVersion());
+                    })[0];
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    skipped.add(replace.get(i));
+                }
+            }
+        }
+        if (!withId.isEmpty()) {
+            Set<Long> existing = new HashSet<>(jdbcTemplate.queryForList(
+                    "SELECT id FROM products WHERE id IN (" + String.join(",", Collections.nCopies(withId.size(), "?")) + ")",
+                    Long.class, withId.stream().map(i -> products.get(i).getId()).toArray()));
+            List<Product> added = new ArrayList<>(withId.size());
+            for (int i : withId) {
+                if (existing.contains(products.get(i).getId())) {
+                    skipped.add(i);
+                } else {
+                    added.add(products.get(i));
+                }
+            }
+            if (!added.isEmpty()) {
+                jdbcTemplate.batchUpdate(
+                        "INSERT INTO products (name, description, price, image_url, stock, updated_at, id) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                        added, added.size(), productSetter(now));
+            }
+        }
+        if (!withoutId.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO products (name, description, price, image_url, stock, updated_at) VALUES (?, ?, ?, ?, ?, ?)",
+                    withoutId, withoutId.size(), productSetter(now));
+        }
+        Collections.sort(skipped);
+        return skipped;
+    }
+
+    /**
+     * Reads every product in id order through a forward-only cursor, handing rows to the
+     * handler as they arrive. With useCursorFetch=true Connector/J fetches fetchSize rows at a
+     * time instead of buffering the whole result set.
+     */
+    public void streamAll(int fetchSize, RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT id, name, description, price, image_url, stock, updated_at, version FROM products ORDER BY id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, handler);
+    }
+
+    public static Product mapProduct(ResultSet rs) throws SQLException {
+        Product product = new Product(rs.getString("name"), rs.getString("description"), rs.getDouble("price"),
+                rs.getString("image_url"), rs.getObject("stock", Integer.class));
+        product.setId(rs.getLong("id"));
+        product.setUpdatedAt(rs.getObject("updated_at", Long.class));
+        product.setVersion(rs.getLong("version"));
+        return product;
+    }
+
+    private static ParameterizedPreparedStatementSetter<Product> productSetter(long now) {
+        return (ps, product) -> {
+            ps.setString(1, product.getName());
+            ps.setString(2, product.getDescription());
+            ps.setDouble(3, product.getPrice());
+            ps.setString(4, product.getImageUrl());
+            if (product.getStock() != null) {
+                ps.setInt(5, product.getStock());
+            } else {
+                ps.setNull(5, Types.INTEGER);
+            }
+            ps.setLong(6, now);
+            if (product.getId() != null) {
+                ps.setLong(7, product.getId());
+            }
+        };
+    }
+}
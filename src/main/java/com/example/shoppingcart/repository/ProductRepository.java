@@ -1,9 +1,40 @@
 package com.example.shoppingcart.repository;
 
 import com.example.shoppingcart.model.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
+
+    // Keyset pages: callers pass the last seen (price, id) instead of an offset, so each page is an index range scan.
+    @Query("SELECT p FROM Product p WHERE p.id > :afterId"
+            + " AND p.price >= :minPrice AND p.price <= :maxPrice"
+            + " AND p.name LIKE :namePattern ESCAPE '!'"
+            + " ORDER BY p.id")
+    List<Product> findPageOrderById(@Param("afterId") long afterId,
+                                    @Param("minPrice") double minPrice,
+                                    @Param("maxPrice") double maxPrice,
+                                    @Param("namePattern") String namePattern,
+                                    Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE (p.price > :afterPrice OR (p.price = :afterPrice AND p.id > :afterId))"
+            + " AND p.price >= :minPrice AND p.price <= :maxPrice"
+            + " AND p.name LIKE :namePattern ESCAPE '!'"
+            + " ORDER BY p.price, p.id")
+    List<Product> findPageOrderByPrice(@Param("afterPrice") double afterPrice,
+                                       @Param("afterId") long afterId,
+                                       @Param("minPrice") double minPrice,
+                                       @Param("maxPrice") double maxPrice,
+                                       @Param("namePattern") String namePattern,
+                                       Pageable pageable);
+
+    @Query("SELECT p.version FROM Product p WHERE p.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
 }
@@ -0,0 +1,118 @@
+package com.example.shoppingcart.repository;
+
+import com.example.shoppingcart.config.MetricsConfig;
+import com.example.shoppingcart.model.SalesSummary;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Sales rollups maintained alongside the orders they summarise. Every checkout adds to the
+// same day and status rows, so those are split into SLOTS rows each (picked by order id) and
+// summed on read; concurrent checkouts then rarely wait on the same row lock.
+// Rows are locked in a fixed order -- day, status, then products by id -- on every write path.
+@Repository
+@Timed(MetricsConfig.REPOSITORY_TIMER)
+public class SalesAggregateRepository {
+
+    static final int SLOTS = 16;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Each write is a single upsert. An UPDATE that found no row followed by an INSERT would take
+    // gap locks on the missing key, and two checkouts doing that for the same new row deadlock.
+    public void addToDay(LocalDate day, long orderId, long orders, long units, double revenue) {
+        jdbcTemplate.update("INSERT INTO sales_daily (sale_date, slot, orders, units, revenue) VALUES (?, ?, ?, ?, ?)"
+                        + " ON DUPLICATE KEY UPDATE orders = orders + VALUES(orders), units = units + VALUES(units),"
+                        + " revenue = revenue + VALUES(revenue)",
+                Date.valueOf(day), slot(orderId), orders, units, money(revenue));
+    }
+
+    public void addToStatus(String status, long orderId, long orders) {
+        jdbcTemplate.update("INSERT INTO sales_by_status (status, slot, orders) VALUES (?, ?, ?)"
+                        + " ON DUPLICATE KEY UPDATE orders = orders + VALUES(orders)",
+                status, slot(orderId), orders);
+    }
+
+    /**
+     * @param lines product id -> {units, revenue}; applied in product id order
+     * @param sign  1 to add the lines, -1 to take them back out
+     */
+    public void addToProducts(Map<Long, double[]> lines, int sign) {
+        List<Object[]> rows = new ArrayList<>(lines.size());
+        for (Map.Entry<Long, double[]> line : new TreeMap<>(lines).entrySet()) {
+            rows.add(new Object[]{line.getKey(), sign, sign * (long) line.getValue()[0], money(sign * line.getValue()[1])});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO sales_by_product (product_id, orders, units, revenue) VALUES (?, ?, ?, ?)"
+                + " ON DUPLICATE KEY UPDATE orders = orders + VALUES(orders), units = units + VALUES(units),"
+                + " revenue = revenue + VALUES(revenue)", rows);
+    }
+
+    public List<SalesSummary.Day> findDays(LocalDate from, LocalDate to) {
+        return jdbcTemplate.query("SELECT sale_date, SUM(orders) AS orders, SUM(units) AS units, SUM(revenue) AS revenue"
+                        + " FROM sales_daily WHERE sale_date BETWEEN ? AND ? GROUP BY sale_date ORDER BY sale_date",
+                (rs, rowNum) -> new SalesSummary.Day(rs.getDate("sale_date").toLocalDate(), rs.getLong("orders"),
+                        rs.getLong("units"), rs.getBigDecimal("revenue")),
+                Date.valueOf(from), Date.valueOf(to));
+    }
+
+    // Served from the revenue index: reads `limit` rows however many products have sold
+    public List<SalesSummary.ProductSales> findTopProducts(int limit) {
+        return jdbcTemplate.query("SELECT product_id, orders, units, revenue FROM sales_by_product"
+                        + " ORDER BY revenue DESC LIMIT ?",
+                (rs, rowNum) -> new SalesSummary.ProductSales(rs.getLong("product_id"), rs.getLong("orders"),
+                        rs.getLong("units"), rs.getBigDecimal("revenue")),
+                limit);
+    }
+
+    public Map<String, Long> findOrdersByStatus() {
+        Map<String, Long> counts = new TreeMap<>();
+        jdbcTemplate.query("SELECT status, SUM(orders) AS orders FROM sales_by_status GROUP BY status HAVING SUM(orders) <> 0",
+                rs -> {
+                    counts.put(rs.getString("status"), rs.getLong("orders"));
+                });
+        return counts;
+    }
+
+    public boolean isEmpty() {
+        return jdbcTemplate.queryForList("SELECT 1 FROM sales_by_status LIMIT 1").isEmpty();
+    }
+
+    /**
+     * Recomputes every rollup from orders and order_items, each into slot 0. A full scan of the
+     * order history: for the initial backfill and for repairs, not for regular use.
+     */
+    public void rebuild(String excludedStatus) {
+        jdbcTemplate.update("DELETE FROM sales_daily");
+        jdbcTemplate.update("DELETE FROM sales_by_status");
+        jdbcTemplate.update("DELETE FROM sales_by_product");
+        jdbcTemplate.update("INSERT INTO sales_daily (sale_date, slot, orders, units, revenue)"
+                + " SELECT CAST(o.order_date AS DATE), 0, COUNT(*), COALESCE(SUM(l.units), 0), SUM(o.total_amount)"
+                + " FROM orders o LEFT JOIN (SELECT order_id, SUM(quantity) AS units FROM order_items GROUP BY order_id) l"
+                + " ON l.order_id = o.id WHERE o.status <> ? GROUP BY CAST(o.order_date AS DATE)", excludedStatus);
+        jdbcTemplate.update("INSERT INTO sales_by_status (status, slot, orders)"
+                + " SELECT status, 0, COUNT(*) FROM orders GROUP BY status");
+        jdbcTemplate.update("INSERT INTO sales_by_product (product_id, orders, units, revenue)"
+                + " SELECT i.product_id, COUNT(DISTINCT i.order_id), SUM(i.quantity), SUM(i.price * i.quantity)"
+                + " FROM order_items i JOIN orders o ON o.id = i.order_id WHERE o.status <> ? GROUP BY i.product_id",
+                excludedStatus);
+    }
+
+    private static int slot(long orderId) {
+        return (int) (orderId % SLOTS);
+    }
+
+    private static BigDecimal money(double amount) {
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP);
+    }
+}
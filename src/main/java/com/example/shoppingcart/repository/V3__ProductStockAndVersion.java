@@ -0,0 +1,39 @@
+package com.example.shoppingcart.repository;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Flyway migration (picked up as a bean). products.stock and products.updated_at were added
+// by ddl-auto=update before the schema was versioned, so a baselined database created earlier,
+// e.g. one run with the aws profile's ddl-auto=validate, may lack them; V1 only creates missing
+// tables. MySQL has no ADD COLUMN IF NOT EXISTS, hence Java. Existing rows get stock NULL (not
+// inventory tracked) and version 0.
+@Component
+public class V3__ProductStockAndVersion extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            if (!hasColumn(connection, "stock")) {
+                statement.execute("ALTER TABLE products ADD COLUMN stock INTEGER");
+            }
+            if (!hasColumn(connection, "updated_at")) {
+                statement.execute("ALTER TABLE products ADD COLUMN updated_at BIGINT");
+            }
+            statement.execute("ALTER TABLE products ADD COLUMN version BIGINT NOT NULL DEFAULT 0");
+        }
+    }
+
+    private boolean hasColumn(Connection connection, String column) throws SQLException {
+        try (ResultSet columns = connection.getMetaData().getColumns(connection.getCatalog(), null, "products", column)) {
+            return columns.next();
+        }
+    }
+}
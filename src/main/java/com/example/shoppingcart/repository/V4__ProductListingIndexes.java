@@ -0,0 +1,16 @@
+package com.example.shoppingcart.repository;
+
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.stereotype.Component;
+
+// Flyway migration (picked up as a bean). The keyset listing by price and the name prefix filter
+// (ProductRepository.findPageOrderByPrice / findPageOrderById) scan the whole table without these.
+@Component
+public class V4__ProductListingIndexes extends IndexMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        createIndex(context, "products", "idx_products_price_id", "price, id");
+        createIndex(context, "products", "idx_products_name", "name");
+    }
+}
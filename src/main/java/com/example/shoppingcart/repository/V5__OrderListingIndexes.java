@@ -0,0 +1,17 @@
+package com.example.shoppingcart.repository;
+
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.stereotype.Component;
+
+// Flyway migration (picked up as a bean). The admin dashboard's keyset pages (by status and by
+// date) and a customer's order history (by user, newest first) scan the orders table without these.
+@Component
+public class V5__OrderListingIndexes extends IndexMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        createIndex(context, "orders", "idx_orders_status_date", "status, order_date");
+        createIndex(context, "orders", "idx_orders_user_date", "user_id, order_date");
+        createIndex(context, "orders", "idx_orders_date", "order_date");
+    }
+}
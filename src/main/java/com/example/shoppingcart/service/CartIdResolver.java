@@ -0,0 +1,113 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.model.UserPrincipal;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Identifies the visitor's cart. Anonymous visitors carry a random cart id in a cookie rather
+ * than the HTTP session, so any node can serve the cart. A signed-in user's cart is keyed by
+ * their user id instead, so it follows them between devices and is never visible to whoever
+ * holds the browser's cookie after they sign out.
+ */
+@Component
+public class CartIdResolver {
+
+    public static final String COOKIE_NAME = "SHOPWAVE_CART";
+
+    private static final String USER_CART_PREFIX = "user-";
+
+    @Value("${app.cart.ttl:30d}")
+    private Duration cookieMaxAge;
+
+    // Off only for plain-http development
+    @Value("${app.cart.cookie.secure:true}")
+    private boolean secureCookie;
+
+    /**
+     * @param create whether to issue a new cart id when an anonymous request has none
+     * @return the cart id, or {@code null} if there is none and {@code create} is false
+     */
+    public String resolve(boolean create) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal user) {
+            return USER_CART_PREFIX + user.getId();
+        }
+        String cartId = anonymousCartId();
+        if (cartId != null || !create) {
+            return cartId;
+        }
+
+        cartId = UUID.randomUUID().toString();
+        writeCookie(cartId, cookieMaxAge);
+        currentRequest().setAttribute(COOKIE_NAME, cartId);
+        return cartId;
+    }
+
+    /**
+     * @return the cart id from the visitor's cookie, whether or not they are signed in, or
+     * {@code null} if there is none
+     */
+    public String anonymousCartId() {
+        HttpServletRequest request = currentRequest();
+        Object issued = request.getAttribute(COOKIE_NAME);
+        if (issued != null) {
+            // Empty once the cookie has been expired in this request
+            return ((String) issued).isEmpty() ? null : (String) issued;
+        }
+        if (request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if (COOKIE_NAME.equals(cookie.getName()) && isValid(cookie.getValue())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Expires the visitor's cart cookie, so the next anonymous cart gets a new id.
+     */
+    public void forgetAnonymousCart() {
+        writeCookie("", Duration.ZERO);
+        currentRequest().setAttribute(COOKIE_NAME, "");
+    }
+
+    private void writeCookie(String value, Duration maxAge) {
+        ResponseCookie cookie = ResponseCookie.from(COOKIE_NAME, value)
+                .path("/")
+                .httpOnly(true)
+                .secure(secureCookie)
+                .sameSite("Lax")
+                .maxAge(maxAge)
+                .build();
+        HttpServletResponse response = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getResponse();
+        if (response != null) {
+            response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+        }
+    }
+
+    private HttpServletRequest currentRequest() {
+        return ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+    }
+
+    private boolean isValid(String value) {
+        try {
+            return value != null && UUID.fromString(value).toString().equals(value);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
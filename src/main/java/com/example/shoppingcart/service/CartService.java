@@ -1,37 +1,76 @@
 package com.example.shoppingcart.service;
 
+import com.example.shoppingcart.config.MetricsConfig;
 import com.example.shoppingcart.exception.ServiceException;
 import com.example.shoppingcart.model.CartItem;
 import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.repository.CartCodec;
+import com.example.shoppingcart.repository.CartStore;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.web.context.annotation.SessionScope;
+import org.springframework.web.context.annotation.RequestScope;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
+// Request scoped: the cart lives in the CartStore as (productId, quantity) pairs and is
+// loaded at most once per request, so no cart state is pinned to a node or a session.
 @Service
-@SessionScope
+@RequestScope
+@Timed(MetricsConfig.SERVICE_TIMER)
 public class CartService {
     private static final Logger logger = LoggerFactory.getLogger(CartService.class);
-    private List<CartItem> cartItems = new ArrayList<>();
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private CartIdResolver cartIdResolver;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Keyed by product id, in the order products were first added
+    private LinkedHashMap<Long, Integer> lines;
+    private int itemCount = -1;
+
+    // Resolved against the catalog only when a page needs product details
+    private Map<Long, CartItem> cartItems;
+    private double total;
 
     public void addToCart(Product product) {
         try {
             logger.info("Adding product to cart: {}", product.getName());
-            Optional<CartItem> existingItem = cartItems.stream()
-                    .filter(item -> item.getProduct().getId().equals(product.getId()))
-                    .findFirst();
+            Map<Long, Integer> cart = lines();
+            Integer quantity = cart.get(product.getId());
 
-            if (existingItem.isPresent()) {
+            if (quantity != null) {
                 logger.debug("Product already in cart, incrementing quantity");
-                existingItem.get().setQuantity(existingItem.get().getQuantity() + 1);
+                cart.put(product.getId(), quantity + 1);
             } else {
                 logger.debug("Product not in cart, adding new item");
-                cartItems.add(new CartItem(product, 1));
+                cart.put(product.getId(), 1);
             }
+            itemCount++;
+            if (cartItems != null) {
+                CartItem item = cartItems.get(product.getId());
+                if (item != null) {
+                    item.setQuantity(item.getQuantity() + 1);
+                } else {
+                    cartItems.put(product.getId(), new CartItem(product, 1));
+                }
+                total += product.getPrice();
+            }
+            store();
         } catch (Exception e) {
             logger.error("Error adding product to cart: {}", product.getName(), e);
             throw new ServiceException("Error adding product to cart", e);
@@ -41,7 +80,18 @@ public class CartService {
     public void removeFromCart(Long productId) {
         try {
             logger.info("Removing product from cart, id: {}", productId);
-            cartItems.removeIf(item -> item.getProduct().getId().equals(productId));
+            Integer removed = lines().remove(productId);
+            if (removed != null) {
+                itemCount -= removed;
+                if (cartItems != null) {
+                    CartItem item = cartItems.remove(productId);
+                    if (item != null) {
+                        total -= item.getTotalPrice();
+                    }
+                }
+                resetTotalsIfEmpty();
+                store();
+            }
         } catch (Exception e) {
             logger.error("Error removing product from cart, id: {}", productId, e);
             throw new ServiceException("Error removing product from cart", e);
@@ -50,7 +100,7 @@ public class CartService {
 
     public List<CartItem> getCartItems() {
         try {
-            return cartItems;
+            return new ArrayList<>(items().values());
         } catch (Exception e) {
             logger.error("Error fetching cart items", e);
             throw new ServiceException("Error fetching cart items", e);
@@ -60,16 +110,50 @@ public class CartService {
     public void clearCart() {
         try {
             logger.info("Clearing cart");
-            cartItems.clear();
+            lines = new LinkedHashMap<>();
+            cartItems = new LinkedHashMap<>();
+            resetTotalsIfEmpty();
+            String cartId = cartIdResolver.resolve(false);
+            if (cartId != null) {
+                cartStore.delete(cartId);
+            }
         } catch (Exception e) {
             logger.error("Error clearing cart", e);
             throw new ServiceException("Error clearing cart", e);
         }
     }
 
+    // Called on sign-in: the cart built anonymously moves into the user's own cart and its id is
+    // retired, so the cookie's cart can neither be reused after sign-out nor fixed by a third party
+    public void mergeAnonymousCart() {
+        try {
+            String anonymousId = cartIdResolver.anonymousCartId();
+            if (anonymousId == null) {
+                return;
+            }
+            Map<Long, Integer> anonymous = CartCodec.decode(cartStore.load(anonymousId));
+            if (!anonymous.isEmpty()) {
+                logger.info("Merging {} anonymous cart lines into the user's cart", anonymous.size());
+                Map<Long, Integer> cart = lines();
+                for (Map.Entry<Long, Integer> line : anonymous.entrySet()) {
+                    cart.merge(line.getKey(), line.getValue(), Integer::sum);
+                    itemCount += line.getValue();
+                }
+                cartItems = null;
+                store();
+            }
+            cartStore.delete(anonymousId);
+            cartIdResolver.forgetAnonymousCart();
+        } catch (Exception e) {
+            logger.error("Error merging the anonymous cart", e);
+            throw new ServiceException("Error merging the anonymous cart", e);
+        }
+    }
+
     public double getCartTotal() {
         try {
-            return cartItems.stream().mapToDouble(CartItem::getTotalPrice).sum();
+            items();
+            return total;
         } catch (Exception e) {
             logger.error("Error calculating cart total", e);
             throw new ServiceException("Error calculating cart total", e);
@@ -78,7 +162,12 @@ public class CartService {
 
     public int getCartItemCount() {
         try {
-            return cartItems.stream().mapToInt(CartItem::getQuantity).sum();
+            if (itemCount < 0) {
+                // Only the encoded header is read; the lines are not decoded for the cart badge
+                String cartId = cartIdResolver.resolve(false);
+                itemCount = cartId != null ? CartCodec.readItemCount(cartStore.load(cartId)) : 0;
+            }
+            return itemCount;
         } catch (Exception e) {
             logger.error("Error calculating cart item count", e);
             return 0;
@@ -88,15 +177,24 @@ public class CartService {
     public void updateItemQuantity(Long productId, int quantity) {
         try {
             logger.info("Updating quantity for product id: {} to {}", productId, quantity);
-            Optional<CartItem> item = cartItems.stream()
-                    .filter(i -> i.getProduct().getId().equals(productId))
-                    .findFirst();
-            
-            if (item.isPresent()) {
+            Map<Long, Integer> cart = lines();
+            Integer current = cart.get(productId);
+
+            if (current != null) {
                 if (quantity <= 0) {
                     removeFromCart(productId);
                 } else {
-                    item.get().setQuantity(quantity);
+                    int delta = quantity - current;
+                    cart.put(productId, quantity);
+                    itemCount += delta;
+                    if (cartItems != null) {
+                        CartItem item = cartItems.get(productId);
+                        if (item != null) {
+                            item.setQuantity(quantity);
+                            total += delta * item.getProduct().getPrice();
+                        }
+                    }
+                    store();
                 }
             }
         } catch (Exception e) {
@@ -104,4 +202,65 @@ public class CartService {
             throw new ServiceException("Error updating cart item quantity", e);
         }
     }
+
+    private Map<Long, Integer> lines() {
+        if (lines == null) {
+            String cartId = cartIdResolver.resolve(false);
+            lines = cartId != null ? CartCodec.decode(cartStore.load(cartId)) : new LinkedHashMap<>();
+            itemCount = 0;
+            for (int quantity : lines.values()) {
+                itemCount += quantity;
+            }
+        }
+        return lines;
+    }
+
+    private Map<Long, CartItem> items() {
+        if (cartItems == null) {
+            Map<Long, Integer> cart = lines();
+            Map<Long, Product> products = new LinkedHashMap<>();
+            for (Product product : productService.getProductsByIds(cart.keySet())) {
+                products.put(product.getId(), product);
+            }
+
+            cartItems = new LinkedHashMap<>();
+            total = 0;
+            boolean pruned = false;
+            for (Map.Entry<Long, Integer> line : new ArrayList<>(cart.entrySet())) {
+                Product product = products.get(line.getKey());
+                if (product == null) {
+                    logger.warn("Dropping product id: {} from cart, it is no longer in the catalog", line.getKey());
+                    cart.remove(line.getKey());
+                    itemCount -= line.getValue();
+                    pruned = true;
+                    continue;
+                }
+                CartItem item = new CartItem(product, line.getValue());
+                cartItems.put(product.getId(), item);
+                total += item.getTotalPrice();
+            }
+            if (pruned) {
+                store();
+            }
+        }
+        return cartItems;
+    }
+
+    private void store() {
+        String cartId = cartIdResolver.resolve(true);
+        if (lines.isEmpty()) {
+            cartStore.delete(cartId);
+        } else {
+            cartStore.save(cartId, CartCodec.encode(lines));
+        }
+        meterRegistry.summary(MetricsConfig.CART_LINES).record(lines.size());
+    }
+
+    private void resetTotalsIfEmpty() {
+        // Drops any floating point drift left over from incremental updates
+        if (lines.isEmpty()) {
+            itemCount = 0;
+            total = 0;
+        }
+    }
 }
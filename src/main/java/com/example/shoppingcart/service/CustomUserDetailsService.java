@@ -1,12 +1,13 @@
 package com.example.shoppingcart.service;
 
 import com.example.shoppingcart.model.User;
-import com.example.shoppingcart.repository.UserRepository;
+import com.example.shoppingcart.model.UserPrincipal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -14,26 +15,37 @@ import org.springframework.stereotype.Service;
 import java.util.Collections;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private static final Logger logger = LoggerFactory.getLogger(CustomUserDetailsService.class);
 
     @Autowired
-    private UserRepository userRepository;
+    private UserService userService;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         logger.debug("Loading user by username: {}", username);
-        User user = userRepository.findByUsername(username)
+        User user = userService.findByUsername(username)
                 .orElseThrow(() -> {
                     logger.warn("User not found with username: {}", username);
                     return new UsernameNotFoundException("User not found with username: " + username);
                 });
 
-        return new org.springframework.security.core.userdetails.User(
+        return new UserPrincipal(
+                user.getId(),
                 user.getUsername(),
                 user.getPassword(),
                 Collections.singletonList(new SimpleGrantedAuthority(user.getRole()))
         );
     }
+
+    // Called after a successful login whose stored hash uses another algorithm or a lower cost
+    // than currently configured
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        UserPrincipal principal = (UserPrincipal) user;
+        logger.info("Re-hashing password for user: {}", principal.getUsername());
+        userService.updatePassword(principal.getId(), newPassword);
+        return new UserPrincipal(principal.getId(), principal.getUsername(), newPassword, principal.getAuthorities());
+    }
 }
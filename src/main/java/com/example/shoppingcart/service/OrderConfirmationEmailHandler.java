@@ -0,0 +1,42 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.model.OutboxEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// Stand-in for the customer email integration: logs the message it would send
+@Component
+public class OrderConfirmationEmailHandler implements OutboxHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderConfirmationEmailHandler.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    public String getName() {
+        return "email";
+    }
+
+    @Override
+    public boolean handles(String eventType) {
+        return OutboxService.ORDER_CREATED.equals(eventType) || OutboxService.ORDER_STATUS_CHANGED.equals(eventType);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) throws Exception {
+        JsonNode payload = objectMapper.readTree(event.getPayload());
+        String username = payload.path("username").asText();
+        if (OutboxService.ORDER_CREATED.equals(event.getEventType())) {
+            logger.info("Email to {}: order #{} confirmed, {} lines, total {}", username, event.getAggregateId(),
+                    payload.path("lines").asInt(), payload.path("totalAmount").asDouble());
+        } else {
+            logger.info("Email to {}: order #{} is now {}", username, event.getAggregateId(),
+                    payload.path("newStatus").asText());
+        }
+    }
+}
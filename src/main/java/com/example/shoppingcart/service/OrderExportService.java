@@ -0,0 +1,164 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.config.MetricsConfig;
+import com.example.shoppingcart.exception.ServiceException;
+import com.example.shoppingcart.model.ExportFormat;
+import com.example.shoppingcart.model.OrderQuery;
+import com.example.shoppingcart.repository.OrderJdbcRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+// Order export for reconciliation: rows go from the database cursor straight to the output,
+// so memory stays flat however many orders the range covers. CSV has one row per order line;
+// NDJSON has one object per order with its lines nested.
+@Service
+@Timed(MetricsConfig.SERVICE_TIMER)
+public class OrderExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderExportService.class);
+
+    private static final CsvSchema CSV_COLUMNS = CsvSchema.builder()
+            .addColumn("orderId")
+            .addColumn("orderDate")
+            .addColumn("status")
+            .addColumn("username")
+            .addColumn("totalAmount")
+            .addColumn("itemId")
+            .addColumn("productId")
+            .addColumn("productName")
+            .addColumn("quantity")
+            .addColumn("price")
+            .setUseHeader(true)
+            .build();
+
+    private final CsvMapper csvMapper = new CsvMapper();
+
+    @Autowired
+    private OrderJdbcRepository orderJdbcRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.orders.export.fetch-size:1000}")
+    private int fetchSize;
+
+    @Transactional(readOnly = true)
+    public void exportOrders(OrderQuery query, ExportFormat format, OutputStream out) {
+        long start = System.nanoTime();
+        long[] orders = {0};
+        long[] lines = {0};
+        try {
+            logger.info("Exporting orders as {}: status={}, from={}, to={}, user={}",
+                    format, query.getStatus(), query.getFrom(), query.getTo(), query.getUsername());
+            JsonGenerator generator;
+            if (format == ExportFormat.CSV) {
+                generator = csvMapper.getFactory().createGenerator(out);
+                generator.setSchema(CSV_COLUMNS);
+            } else {
+                generator = objectMapper.getFactory().createGenerator(out);
+                generator.setRootValueSeparator(null);
+            }
+            long[] currentOrder = {-1};
+            orderJdbcRepository.streamLines(query, fetchSize, rs -> {
+                try {
+                    long orderId = rs.getLong("order_id");
+                    if (orderId != currentOrder[0]) {
+                        orders[0]++;
+                    }
+                    if (format == ExportFormat.CSV) {
+                        writeCsvLine(generator, rs);
+                    } else {
+                        if (orderId != currentOrder[0]) {
+                            if (currentOrder[0] != -1) {
+                                endJsonOrder(generator);
+                            }
+                            startJsonOrder(generator, rs);
+                        }
+                        writeJsonLine(generator, rs);
+                    }
+                    currentOrder[0] = orderId;
+                    lines[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (format == ExportFormat.NDJSON && currentOrder[0] != -1) {
+                endJsonOrder(generator);
+            }
+            generator.flush();
+            logger.info("Exported {} orders ({} rows) in {} ms", orders[0], lines[0], (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            // Usually the client going away; the response is already committed at this point
+            logger.warn("Order export stopped after {} orders: {}", orders[0], e.getMessage());
+            throw new ServiceException("Error exporting orders", e);
+        }
+    }
+
+    private void writeCsvLine(JsonGenerator generator, ResultSet rs) throws IOException, SQLException {
+        generator.writeStartArray();
+        generator.writeNumber(rs.getLong("order_id"));
+        generator.writeString(rs.getObject("order_date", LocalDateTime.class).toString());
+        generator.writeString(rs.getString("status"));
+        generator.writeString(rs.getString("username"));
+        generator.writeNumber(rs.getDouble("total_amount"));
+        long itemId = rs.getLong("item_id");
+        if (rs.wasNull()) {
+            for (int i = 0; i < 5; i++) {
+                generator.writeNull();
+            }
+        } else {
+            generator.writeNumber(itemId);
+            generator.writeNumber(rs.getLong("product_id"));
+            generator.writeString(rs.getString("product_name"));
+            generator.writeNumber(rs.getInt("quantity"));
+            generator.writeNumber(rs.getDouble("price"));
+        }
+        generator.writeEndArray();
+    }
+
+    private void startJsonOrder(JsonGenerator generator, ResultSet rs) throws IOException, SQLException {
+        generator.writeStartObject();
+        generator.writeNumberField("orderId", rs.getLong("order_id"));
+        generator.writeStringField("orderDate", rs.getObject("order_date", LocalDateTime.class).toString());
+        generator.writeStringField("status", rs.getString("status"));
+        generator.writeStringField("username", rs.getString("username"));
+        generator.writeNumberField("totalAmount", rs.getDouble("total_amount"));
+        generator.writeArrayFieldStart("items");
+    }
+
+    private void writeJsonLine(JsonGenerator generator, ResultSet rs) throws IOException, SQLException {
+        long itemId = rs.getLong("item_id");
+        if (rs.wasNull()) {
+            return;
+        }
+        generator.writeStartObject();
+        generator.writeNumberField("itemId", itemId);
+        generator.writeNumberField("productId", rs.getLong("product_id"));
+        generator.writeStringField("productName", rs.getString("product_name"));
+        generator.writeNumberField("quantity", rs.getInt("quantity"));
+        generator.writeNumberField("price", rs.getDouble("price"));
+        generator.writeEndObject();
+    }
+
+    private void endJsonOrder(JsonGenerator generator) throws IOException {
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+}
@@ -1,29 +1,83 @@
 package com.example.shoppingcart.service;
 
+import com.example.shoppingcart.config.MetricsConfig;
+import com.example.shoppingcart.exception.InsufficientStockException;
+import com.example.shoppingcart.exception.PriceChangedException;
 import com.example.shoppingcart.exception.ServiceException;
 import com.example.shoppingcart.model.CartItem;
 import com.example.shoppingcart.model.Order;
 import com.example.shoppingcart.model.OrderItem;
+import com.example.shoppingcart.model.OrderPage;
+import com.example.shoppingcart.model.OrderQuery;
+import com.example.shoppingcart.model.Product;
 import com.example.shoppingcart.model.User;
+import com.example.shoppingcart.repository.OrderJdbcRepository;
 import com.example.shoppingcart.repository.OrderRepository;
+import com.example.shoppingcart.repository.ProductJdbcRepository;
+import com.example.shoppingcart.repository.ProductRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
+@Timed(MetricsConfig.SERVICE_TIMER)
 public class OrderService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
 
+    public static final int ORDER_PAGE_SIZE = 20;
+
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private OrderJdbcRepository orderJdbcRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductJdbcRepository productJdbcRepository;
+
+    @Autowired
+    private SalesAnalyticsService salesAnalyticsService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ProductService productService;
+
+    // Checkout runs a fixed number of statements regardless of cart size: one bulk product
+    // lookup to check the cart's prices, the order row, all of its lines in one JDBC batch, one
+    // batch of conditional stock updates and one lookup of the products it sold out. Emails and
+    // warehouse notifications go through the outbox (one more small batched insert) and run
+    // after the commit.
     @Transactional
     public Order createOrder(User user, List<CartItem> cartItems) {
         try {
@@ -32,65 +86,119 @@ public class OrderService {
             order.setUser(user);
             order.setOrderDate(LocalDateTime.now());
             order.setStatus("PENDING");
-            
+
+            Map<Long, Product> currentProducts = loadCurrentProducts(cartItems);
+            List<OrderItem> orderItems = new ArrayList<>(cartItems.size());
+            List<String> repriced = new ArrayList<>();
             double total = 0;
             for (CartItem cartItem : cartItems) {
-                OrderItem orderItem = new OrderItem();
-                orderItem.setProduct(cartItem.getProduct());
-                orderItem.setQuantity(cartItem.getQuantity());
-                orderItem.setPrice(cartItem.getProduct().getPrice());
-                order.addItem(orderItem);
-                total += cartItem.getTotalPrice();
+                Product product = currentProducts.get(cartItem.getProduct().getId());
+                if (product == null) {
+                    throw new ServiceException("Product is no longer available: " + cartItem.getProduct().getName());
+                }
+                if (product.getPrice() != cartItem.getProduct().getPrice()) {
+                    logger.info("Repriced product id: {} from {} to {} at checkout",
+                            product.getId(), cartItem.getProduct().getPrice(), product.getPrice());
+                    repriced.add(String.format(Locale.ROOT, "%s is now $%.2f", product.getName(), product.getPrice()));
+                }
+                OrderItem orderItem = new OrderItem(product, cartItem.getQuantity(), product.getPrice());
+                orderItems.add(orderItem);
+                total += orderItem.getPrice() * orderItem.getQuantity();
+            }
+            // Never charge a total other than the one the customer was shown: send them back to the cart
+            if (!repriced.isEmpty()) {
+                throw new PriceChangedException(String.format(Locale.ROOT, "Prices changed since you viewed your cart: %s. "
+                        + "Your new total is $%.2f. Please review your cart and pay again.",
+                        String.join(", ", repriced), total));
             }
             order.setTotalAmount(total);
-            
+
             Order savedOrder = orderRepository.save(order);
-            logger.info("Order created successfully with id: {}", savedOrder.getId());
+            orderJdbcRepository.insertItems(savedOrder.getId(), orderItems);
+            // Reserve last so the product row locks are held only until the commit that follows
+            reserveStock(orderItems, currentProducts);
+            salesAnalyticsService.recordOrder(savedOrder, orderItems);
+            outboxService.publish(OutboxService.ORDER_CREATED, savedOrder.getId(), orderCreatedPayload(savedOrder, orderItems));
+            logger.info("Order created successfully with id: {} ({} lines)", savedOrder.getId(), orderItems.size());
+            countOrderOnCommit();
             return savedOrder;
+        } catch (ServiceException e) {
+            logger.warn("Order rejected for user: {}: {}", user.getUsername(), e.getMessage());
+            meterRegistry.counter(MetricsConfig.ORDERS, "outcome", "rejected").increment();
+            throw e;
         } catch (Exception e) {
             logger.error("Error creating order for user: {}", user.getUsername(), e);
             throw new ServiceException("Error creating order", e);
         }
     }
 
-    public List<Order> getOrdersByUser(User user) {
+    @Transactional(readOnly = true)
+    public Slice<Order> getOrdersByUser(User user, int page) {
         try {
-            logger.debug("Fetching orders for user: {}", user.getUsername());
-            return orderRepository.findByUserOrderByOrderDateDesc(user);
+            logger.debug("Fetching orders for user: {}, page: {}", user.getUsername(), page);
+            return orderRepository.findByUser(user, newestFirst(page));
         } catch (Exception e) {
             logger.error("Error fetching orders for user: {}", user.getUsername(), e);
             throw new ServiceException("Error fetching orders for user", e);
         }
     }
 
-    public List<Order> getAllOrders() {
+    @Transactional(readOnly = true)
+    public OrderPage searchOrders(OrderQuery query) {
         try {
-            logger.debug("Fetching all orders");
-            return orderRepository.findAllByOrderByOrderDateDesc();
+            logger.debug("Searching orders: status={}, from={}, to={}, user={}, before=({}, {})",
+                    query.getStatus(), query.getFrom(), query.getTo(), query.getUsername(),
+                    query.getBeforeDate(), query.getBeforeId());
+            // One extra row tells us whether there is a next page without a COUNT query
+            List<Order> rows = orderRepository.search(query, ORDER_PAGE_SIZE + 1);
+            if (rows.size() <= ORDER_PAGE_SIZE) {
+                return new OrderPage(rows, false, null, null);
+            }
+            List<Order> items = new ArrayList<>(rows.subList(0, ORDER_PAGE_SIZE));
+            Order last = items.get(items.size() - 1);
+            return new OrderPage(items, true, last.getOrderDate(), last.getId());
         } catch (Exception e) {
-            logger.error("Error fetching all orders", e);
-            throw new ServiceException("Error fetching all orders", e);
+            logger.error("Error searching orders", e);
+            throw new ServiceException("Error searching orders", e);
         }
     }
 
+    // From the sales rollups rather than a GROUP BY over every order
+    public Map<String, Long> getOrderCountsByStatus() {
+        logger.debug("Counting orders by status");
+        return salesAnalyticsService.getOrdersByStatus();
+    }
+
+    @Transactional(readOnly = true)
     public Optional<Order> getOrderById(Long id) {
         try {
             logger.debug("Fetching order by id: {}", id);
-            return orderRepository.findById(id);
+            return orderRepository.findWithItemsById(id);
         } catch (Exception e) {
             logger.error("Error fetching order by id: {}", id, e);
             throw new ServiceException("Error fetching order by id: " + id, e);
         }
     }
 
+    @Transactional
     public void updateOrderStatus(Long orderId, String status) {
         try {
             logger.info("Updating order status for order id: {} to {}", orderId, status);
             Optional<Order> orderOpt = orderRepository.findById(orderId);
             if (orderOpt.isPresent()) {
                 Order order = orderOpt.get();
+                String oldStatus = order.getStatus();
+                salesAnalyticsService.recordStatusChange(order, oldStatus, status);
                 order.setStatus(status);
                 orderRepository.save(order);
+                if (!oldStatus.equals(status)) {
+                    Map<String, Object> payload = new LinkedHashMap<>();
+                    payload.put("orderId", order.getId());
+                    payload.put("username", order.getUser().getUsername());
+                    payload.put("oldStatus", oldStatus);
+                    payload.put("newStatus", status);
+                    outboxService.publish(OutboxService.ORDER_STATUS_CHANGED, order.getId(), payload);
+                }
                 logger.info("Order status updated successfully");
             } else {
                 logger.warn("Order not found for id: {}", orderId);
@@ -101,4 +209,75 @@ public class OrderService {
             throw new ServiceException("Error updating order status", e);
         }
     }
+
+    private Pageable newestFirst(int page) {
+        return PageRequest.of(Math.max(page, 0), ORDER_PAGE_SIZE,
+                Sort.by(Sort.Order.desc("orderDate"), Sort.Order.desc("id")));
+    }
+
+    private void reserveStock(List<OrderItem> orderItems, Map<Long, Product> products) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderItem item : orderItems) {
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+        List<Long> rejected = productJdbcRepository.reserveStock(quantities);
+        if (!rejected.isEmpty()) {
+            StringBuilder names = new StringBuilder();
+            for (Long id : rejected) {
+                if (names.length() > 0) {
+                    names.append(", ");
+                }
+                names.append(products.get(id).getName());
+            }
+            // Rolls back the order and any stock already reserved for it
+            throw new InsufficientStockException("Not enough stock for: " + names);
+        }
+        boolean soldOut = !productJdbcRepository.findSoldOut(quantities.keySet()).isEmpty();
+        evictOnCommit(quantities.keySet(), soldOut);
+    }
+
+    // The stock UPDATE bypasses JPA: once it commits, the cached products and listing pages that
+    // show the old stock and version are dropped
+    private void evictOnCommit(Collection<Long> productIds, boolean soldOut) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                productService.stockChanged(productIds, soldOut);
+            }
+        });
+    }
+
+    // Fixed size whatever the cart holds; handlers that need the lines load the order themselves
+    private Map<String, Object> orderCreatedPayload(Order order, List<OrderItem> orderItems) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("orderId", order.getId());
+        payload.put("username", order.getUser().getUsername());
+        payload.put("orderDate", order.getOrderDate().toString());
+        payload.put("totalAmount", order.getTotalAmount());
+        payload.put("lines", orderItems.size());
+        return payload;
+    }
+
+    private Map<Long, Product> loadCurrentProducts(List<CartItem> cartItems) {
+        Set<Long> ids = new HashSet<>();
+        for (CartItem cartItem : cartItems) {
+            ids.add(cartItem.getProduct().getId());
+        }
+        // Read from the database rather than the product cache: prices must be current at checkout
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(ids)) {
+            products.put(product.getId(), product);
+        }
+        return products;
+    }
+
+    // Counted after commit so orders rolled back on commit do not show up in the order rate
+    private void countOrderOnCommit() {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                meterRegistry.counter(MetricsConfig.ORDERS, "outcome", "created").increment();
+            }
+        });
+    }
 }
@@ -0,0 +1,124 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.config.MetricsConfig;
+import com.example.shoppingcart.model.OutboxEvent;
+import com.example.shoppingcart.repository.OutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Polls the outbox on the scheduler thread and runs each claimed event through its handler.
+// Delivered rows are deleted in one batch per poll; failures are retried with exponential
+// backoff and parked as FAILED after max-attempts. Turn it off on nodes that should only
+// serve requests; any node with the dispatcher enabled can drain the queue.
+@Service
+@ConditionalOnProperty(name = "app.outbox.dispatcher.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private List<OutboxHandler> handlers;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.outbox.retry-backoff:5s}")
+    private Duration retryBackoff;
+
+    @Value("${app.outbox.max-retry-backoff:1h}")
+    private Duration maxRetryBackoff;
+
+    @Value("${app.outbox.lease:5m}")
+    private Duration lease;
+
+    private final Map<String, OutboxHandler> handlersByName = new HashMap<>();
+
+    @PostConstruct
+    public void registerHandlers() {
+        for (OutboxHandler handler : handlers) {
+            handlersByName.put(handler.getName(), handler);
+        }
+        logger.info("Outbox dispatcher running handlers {}", handlersByName.keySet());
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:500}", initialDelayString = "${app.outbox.poll-interval-ms:500}")
+    public void dispatch() {
+        try {
+            // Keep going while full batches come back so a backlog drains without waiting a poll interval per batch
+            while (dispatchBatch() == batchSize) {
+                logger.debug("Outbox batch full, polling again");
+            }
+        } catch (Exception e) {
+            logger.error("Error dispatching outbox events", e);
+        }
+    }
+
+    int dispatchBatch() {
+        long now = System.currentTimeMillis();
+        List<OutboxEvent> events = outboxRepository.claimDue(now, now + lease.toMillis(), batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        List<Long> delivered = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            OutboxHandler handler = handlersByName.get(event.getHandler());
+            try {
+                if (handler == null) {
+                    throw new IllegalStateException("No outbox handler named " + event.getHandler());
+                }
+                handler.handle(event);
+                delivered.add(event.getId());
+                meterRegistry.counter(MetricsConfig.OUTBOX, "handler", event.getHandler(), "outcome", "delivered").increment();
+                meterRegistry.timer(MetricsConfig.OUTBOX_LAG, "handler", event.getHandler())
+                        .record(System.currentTimeMillis() - event.getCreatedAt(), TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                failed(event, e);
+            }
+        }
+        if (!delivered.isEmpty()) {
+            outboxRepository.delete(delivered);
+        }
+        logger.debug("Dispatched {} of {} outbox events", delivered.size(), events.size());
+        return events.size();
+    }
+
+    private void failed(OutboxEvent event, Exception e) {
+        String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        if (event.getAttempts() >= maxAttempts) {
+            logger.error("Giving up on {} event {} for {} after {} attempts: {}",
+                    event.getEventType(), event.getId(), event.getHandler(), event.getAttempts(), error);
+            outboxRepository.markFailed(event.getId(), error);
+            meterRegistry.counter(MetricsConfig.OUTBOX, "handler", event.getHandler(), "outcome", "failed").increment();
+            return;
+        }
+        long backoff = retryBackoff.toMillis() << Math.min(event.getAttempts() - 1, 30);
+        backoff = Math.min(backoff, maxRetryBackoff.toMillis());
+        logger.warn("Retrying {} event {} for {} in {} ms (attempt {}): {}",
+                event.getEventType(), event.getId(), event.getHandler(), backoff, event.getAttempts(), error);
+        outboxRepository.scheduleRetry(event.getId(), System.currentTimeMillis() + backoff, error);
+        meterRegistry.counter(MetricsConfig.OUTBOX, "handler", event.getHandler(), "outcome", "retried").increment();
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.model.OutboxEvent;
+
+/**
+ * A side effect run by the outbox dispatcher after the transaction that published an event has
+ * committed. Delivery is at least once: a handler can see the same event again after a crash
+ * or a lost acknowledgement, so it should be idempotent on the event id.
+ */
+public interface OutboxHandler {
+
+    /**
+     * Stable name stored with each pending event; renaming a handler orphans its queued events.
+     */
+    String getName();
+
+    boolean handles(String eventType);
+
+    /**
+     * Throwing schedules the event for a retry with backoff.
+     */
+    void handle(OutboxEvent event) throws Exception;
+}
@@ -0,0 +1,84 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.config.MetricsConfig;
+import com.example.shoppingcart.exception.ServiceException;
+import com.example.shoppingcart.repository.OutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Side effects of order changes (confirmation emails, warehouse notifications) are queued here
+// inside the transaction that makes the change and run later by OutboxDispatcher, so checkout
+// pays for one batched insert rather than for the side effects themselves, and an event is
+// only ever delivered for a change that committed.
+@Service
+@Timed(MetricsConfig.SERVICE_TIMER)
+public class OutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxService.class);
+
+    public static final String ORDER_CREATED = "order.created";
+    public static final String ORDER_STATUS_CHANGED = "order.status-changed";
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private List<OutboxHandler> handlers;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(String eventType, long aggregateId, Map<String, Object> payload) {
+        List<String> subscribers = new ArrayList<>();
+        for (OutboxHandler handler : handlers) {
+            if (handler.handles(eventType)) {
+                subscribers.add(handler.getName());
+            }
+        }
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        try {
+            outboxRepository.insert(eventType, aggregateId, objectMapper.writeValueAsString(payload), subscribers);
+            logger.debug("Queued {} for {} to {}", eventType, aggregateId, subscribers);
+        } catch (JsonProcessingException e) {
+            throw new ServiceException("Error serialising " + eventType + " event", e);
+        }
+    }
+
+    public Map<String, Long> getQueueSizes() {
+        try {
+            Map<String, Long> sizes = new LinkedHashMap<>();
+            sizes.put(OutboxRepository.PENDING, outboxRepository.countByStatus(OutboxRepository.PENDING));
+            sizes.put(OutboxRepository.FAILED, outboxRepository.countByStatus(OutboxRepository.FAILED));
+            return sizes;
+        } catch (Exception e) {
+            logger.error("Error counting outbox events", e);
+            throw new ServiceException("Error counting outbox events", e);
+        }
+    }
+
+    public int requeueFailed() {
+        try {
+            int requeued = outboxRepository.requeueFailed();
+            logger.info("Requeued {} failed outbox events", requeued);
+            return requeued;
+        } catch (Exception e) {
+            logger.error("Error requeueing failed outbox events", e);
+            throw new ServiceException("Error requeueing failed outbox events", e);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.config.CacheConfig;
+import com.example.shoppingcart.config.MetricsConfig;
+import com.example.shoppingcart.config.ReadYourWrites;
+import com.example.shoppingcart.exception.ServiceException;
+import com.example.shoppingcart.model.ExportFormat;
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.ProductImportResult;
+import com.example.shoppingcart.repository.ProductJdbcRepository;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DatabindException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Bulk catalog import and export. Both directions stream: the import holds one batch of rows
+// at a time and commits each batch in its own transaction, the export writes rows straight from
+// a database cursor to the response. Heap use is flat in the size of the catalog.
+@Service
+@Timed(MetricsConfig.SERVICE_TIMER)
+public class ProductBulkService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductBulkService.class);
+
+    // Column length of the products table's VARCHAR columns
+    private static final int MAX_TEXT_LENGTH = 255;
+
+    private static final CsvSchema CSV_COLUMNS = CsvSchema.builder()
+            .addColumn("id")
+            .addColumn("name")
+            .addColumn("description")
+            .addColumn("price")
+            .addColumn("imageUrl")
+            .addColumn("stock")
+            .addColumn("version")
+            .setUseHeader(true)
+            .build();
+
+    private final CsvMapper csvMapper = CsvMapper.builder()
+            .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+            .enable(CsvParser.Feature.TRIM_SPACES)
+            .build();
+
+    @Autowired
+    private ProductJdbcRepository productJdbcRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Value("${app.products.import.batch-size:1000}")
+    private int importBatchSize;
+
+    @Value("${app.products.export.fetch-size:1000}")
+    private int exportFetchSize;
+
+    // One input record; a separate type from Product so a missing price is an error, not 0
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class ImportRow {
+        public Long id;
+        public String name;
+        public String description;
+        public Double price;
+        public String imageUrl;
+        public Integer stock;
+        public Long version;
+
+        Product toProduct() {
+            Product product = new Product(name.trim(), description, price, imageUrl, stock);
+            product.setId(id);
+            product.setVersion(version);
+            return product;
+        }
+    }
+
+    // Rows with an id and a version (as exported) replace that version of the product, rows with
+    // only an id add the product under it, rows without one are added. A stale version or an
+    // existing id rejects the row, so an import cannot undo stock reserved since its export.
+    // Invalid rows are counted and reported but do not stop the import; unreadable input does,
+    // leaving the batches committed before it in place.
+    public ProductImportResult importProducts(InputStream in, ExportFormat format) {
+        long start = System.nanoTime();
+        ProductImportResult result = new ProductImportResult();
+        logger.info("Importing products as {} in batches of {}", format, importBatchSize);
+        try (MappingIterator<ImportRow> rows = reader(format).readValues(in)) {
+            List<Product> batch = new ArrayList<>(importBatchSize);
+            List<Long> records = new ArrayList<>(importBatchSize);
+            long record = 0;
+            while (rows.hasNextValue()) {
+                record++;
+                result.received();
+                ImportRow row;
+                try {
+                    row = rows.nextValue();
+                } catch (DatabindException e) {
+                    // The iterator skips the rest of the record, so the next one still reads
+                    result.reject(record, e.getOriginalMessage());
+                    continue;
+                }
+                String invalid = validate(row);
+                if (invalid != null) {
+                    result.reject(record, invalid);
+                    continue;
+                }
+                batch.add(row.toProduct());
+                records.add(record);
+                if (batch.size() == importBatchSize) {
+                    writeBatch(batch, records, result);
+                }
+            }
+            writeBatch(batch, records, result);
+            result.complete(elapsedMs(start));
+            logger.info("Imported {} of {} products ({} rejected) in {} ms",
+                    result.getImported(), result.getReceived(), result.getRejected(), result.getElapsedMs());
+            return result;
+        } catch (JsonProcessingException e) {
+            logger.warn("Product import stopped on malformed {} input after {} products: {}",
+                    format, result.getImported(), e.getOriginalMessage());
+            result.fail("Malformed " + format.getExtension() + " input: " + e.getOriginalMessage(), elapsedMs(start));
+            return result;
+        } catch (Exception e) {
+            logger.error("Error importing products after {} were imported", result.getImported(), e);
+            throw new ServiceException("Error importing products, " + result.getImported() + " were imported before the error", e);
+        } finally {
+            if (result.getImported() > 0) {
+                refreshCatalog();
+            }
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void exportProducts(OutputStream out, ExportFormat format) {
+        long start = System.nanoTime();
+        long[] count = {0};
+        try {
+            logger.info("Exporting products as {}", format);
+            SequenceWriter writer = writer(format).writeValues(out);
+            productJdbcRepository.streamAll(exportFetchSize, rs -> {
+                try {
+                    writer.write(ProductJdbcRepository.mapProduct(rs));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            });
+            writer.flush();
+            if (format == ExportFormat.NDJSON && count[0] > 0) {
+                out.write('\n');
+            }
+            logger.info("Exported {} products in {} ms", count[0], elapsedMs(start));
+        } catch (Exception e) {
+            // Usually the client going away; the response is already committed at this point
+            logger.warn("Product export stopped after {} products: {}", count[0], e.getMessage());
+            throw new ServiceException("Error exporting products", e);
+        }
+    }
+
+    private void writeBatch(List<Product> batch, List<Long> records, ProductImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Integer> skipped = transactionTemplate.execute(status -> productJdbcRepository.upsert(batch));
+        result.imported(batch.size() - skipped.size());
+        for (int i : skipped) {
+            Product product = batch.get(i);
+            long record = records.get(i);
+            if (product.getVersion() != null) {
+                result.reject(record, "product " + product.getId() + " is no longer at version " + product.getVersion()
+                        + " or does not exist; export it again");
+            } else {
+                result.reject(record, "product " + product.getId() + " already exists; include its version to replace it");
+            }
+        }
+        batch.clear();
+        records.clear();
+    }
+
+    private String validate(ImportRow row) {
+        if (row.name == null || row.name.isBlank()) {
+            return "name is required";
+        }
+        if (row.price == null || !Double.isFinite(row.price) || row.price < 0) {
+            return "price must be a number >= 0";
+        }
+        if (row.stock != null && row.stock < 0) {
+            return "stock must be >= 0";
+        }
+        if (row.id != null && row.id <= 0) {
+            return "id must be positive";
+        }
+        if (row.version != null && (row.id == null || row.version < 0)) {
+            return "version needs an id and must be >= 0";
+        }
+        if (tooLong(row.name) || tooLong(row.description) || tooLong(row.imageUrl)) {
+            return "name, description and imageUrl are limited to " + MAX_TEXT_LENGTH + " characters";
+        }
+        return null;
+    }
+
+    private static boolean tooLong(String value) {
+        return value != null && value.length() > MAX_TEXT_LENGTH;
+    }
+
+    // The bulk writes bypass JPA: drop cached products and pages and rebuild the search index
+    private void refreshCatalog() {
+        // Caches and the search index are rebuilt from the primary until replicas have the import
+        readYourWrites.pinEveryone();
+        for (String name : List.of(CacheConfig.PRODUCTS, CacheConfig.PRODUCT_PAGES)) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+        searchIndex.rebuild();
+    }
+
+    private ObjectReader reader(ExportFormat format) {
+        if (format == ExportFormat.CSV) {
+            return csvMapper.readerFor(ImportRow.class).with(CsvSchema.emptySchema().withHeader());
+        }
+        return objectMapper.readerFor(ImportRow.class);
+    }
+
+    private ObjectWriter writer(ExportFormat format) {
+        ObjectWriter writer = format == ExportFormat.CSV
+                // updatedAt is not part of the import format
+                ? csvMapper.writer(CSV_COLUMNS).with(JsonGenerator.Feature.IGNORE_UNKNOWN)
+                : objectMapper.writer().withRootValueSeparator("\n");
+        // Let the response buffer decide when to flush, not every row
+        return writer.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    private static long elapsedMs(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,357 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.config.MetricsConfig;
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.ProductImageSize;
+import com.example.shoppingcart.repository.ProductImageStore;
+import com.example.shoppingcart.repository.ProductImageStore.StoredImage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// Product images served from this application instead of hot-linked from the hosts in
+// Product.imageUrl. The original is fetched once per product and URL, every size is rendered
+// from it as JPEG and kept in ProductImageStore; concurrent requests for the same image wait
+// for that one fetch. An original that cannot be fetched or decoded is not retried for
+// app.images.failure-ttl, and callers fall back to linking it directly.
+//
+// Image URLs are entered by admins and imported in bulk, so they are not trusted: only http(s)
+// URLs on app.images.allowed-hosts (any host if empty) are fetched or linked, and a fetch is
+// refused when the host resolves to a loopback, private, link-local or other non-public
+// address. Redirects are followed here rather than by the HTTP client, so every hop is checked.
+@Service
+@Timed(MetricsConfig.SERVICE_TIMER)
+public class ProductImageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImageService.class);
+
+    private static final int MAX_REDIRECTS = 5;
+    private static final Pattern IPV4_LITERAL = Pattern.compile("[0-9.]+");
+
+    @Autowired
+    private ProductImageStore productImageStore;
+
+    @Value("${app.images.fetch-timeout:10s}")
+    private Duration fetchTimeout;
+
+    @Value("${app.images.max-source-size:10MB}")
+    private DataSize maxSourceSize;
+
+    // Decoding allocates 4 bytes per pixel, whatever the size of the file
+    @Value("${app.images.max-source-pixels:40000000}")
+    private long maxSourcePixels;
+
+    @Value("${app.images.quality:0.8}")
+    private float quality;
+
+    @Value("${app.images.failure-ttl:1m}")
+    private Duration failureTtl;
+
+    // A host matches itself and its subdomains
+    @Value("${app.images.allowed-hosts:}")
+    private List<String> allowedHosts;
+
+    // For a local stand-in image server only
+    @Value("${app.images.allow-private-addresses:false}")
+    private boolean allowPrivateAddresses;
+
+    private HttpClient httpClient;
+    private Cache<String, Boolean> failedSources;
+    private final Map<String, CompletableFuture<Map<ProductImageSize, StoredImage>>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(fetchTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        List<String> hosts = new ArrayList<>();
+        for (String host : allowedHosts) {
+            if (!host.isBlank()) {
+                hosts.add(host.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        allowedHosts = hosts;
+        failedSources = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(failureTtl)
+                .build();
+    }
+
+    /**
+     * @return the resized image, or null if the product's image could not be fetched or decoded
+     */
+    public StoredImage getImage(Product product, ProductImageSize size) {
+        String url = product.getImageUrl();
+        String sourceHash = sourceHash(url);
+        StoredImage image = productImageStore.get(product.getId(), size, sourceHash);
+        if (image != null || failedSources.getIfPresent(url) != null) {
+            return image;
+        }
+        String key = product.getId() + "-" + sourceHash;
+        CompletableFuture<Map<ProductImageSize, StoredImage>> mine = new CompletableFuture<>();
+        CompletableFuture<Map<ProductImageSize, StoredImage>> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            try {
+                return available(running.get(fetchTimeout.toMillis() * 2, TimeUnit.MILLISECONDS).get(size));
+            } catch (Exception e) {
+                logger.warn("Gave up waiting for image of product {}: {}", product.getId(), e.toString());
+                return null;
+            }
+        }
+        try {
+            mine.complete(render(product.getId(), url, sourceHash));
+        } catch (Exception e) {
+            logger.warn("Could not make images for product {} from {}: {}", product.getId(), url, e.toString());
+            failedSources.put(url, Boolean.TRUE);
+            mine.complete(Map.of());
+        } finally {
+            inFlight.remove(key, mine);
+        }
+        return available(mine.join().get(size));
+    }
+
+    // Whether a page may send the browser to this URL when there is no resized copy
+    public boolean isLinkable(String url) {
+        try {
+            return url != null && isAllowed(URI.create(url));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // After a product is saved: its image may have changed at the same URL
+    public void evict(Long productId) {
+        productImageStore.invalidate(productId);
+    }
+
+    private Map<ProductImageSize, StoredImage> render(long productId, String url, String sourceHash) throws Exception {
+        long start = System.nanoTime();
+        byte[] original = fetch(url);
+        BufferedImage source = decode(original);
+        Map<ProductImageSize, StoredImage> images = new EnumMap<>(ProductImageSize.class);
+        long written = 0;
+        for (ProductImageSize size : ProductImageSize.values()) {
+            byte[] jpeg = encode(resize(source, size));
+            images.put(size, productImageStore.put(productId, size, sourceHash, jpeg));
+            written += jpeg.length;
+        }
+        logger.info("Made images for product {} from {} ({} KB original, {} KB resized) in {} ms", productId, url,
+                original.length / 1024, written / 1024, (System.nanoTime() - start) / 1_000_000);
+        return images;
+    }
+
+    private byte[] fetch(String url) throws IOException, InterruptedException {
+        URI uri = URI.create(url);
+        for (int redirects = 0; ; redirects++) {
+            checkSource(uri);
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .timeout(fetchTimeout)
+                    .header("Accept", "image/*")
+                    .GET()
+                    .build();
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream body = response.body()) {
+                int status = response.statusCode();
+                if (status == 301 || status == 302 || status == 303 || status == 307 || status == 308) {
+                    if (redirects == MAX_REDIRECTS) {
+                        throw new IOException("More than " + MAX_REDIRECTS + " redirects");
+                    }
+                    uri = uri.resolve(response.headers().firstValue("Location")
+                            .orElseThrow(() -> new IOException("HTTP " + status + " without a Location")));
+                    continue;
+                }
+                if (status != 200) {
+                    throw new IOException("HTTP " + status);
+                }
+                long limit = maxSourceSize.toBytes();
+                if (response.headers().firstValueAsLong("Content-Length").orElse(0) > limit) {
+                    throw new IOException("Larger than " + maxSourceSize);
+                }
+                byte[] data = body.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, limit + 1));
+                if (data.length > limit) {
+                    throw new IOException("Larger than " + maxSourceSize);
+                }
+                return data;
+            }
+        }
+    }
+
+    // The client resolves the host again when it connects; allowed-hosts is what keeps a host
+    // that changes its DNS answer in between out
+    private void checkSource(URI uri) throws IOException {
+        if (!isAllowed(uri)) {
+            throw new IOException("Not an allowed image URL: " + uri);
+        }
+        if (allowPrivateAddresses) {
+            return;
+        }
+        for (InetAddress address : InetAddress.getAllByName(uri.getHost())) {
+            if (!isPublic(address)) {
+                throw new IOException(uri.getHost() + " resolves to the non-public address " + address.getHostAddress());
+            }
+        }
+    }
+
+    // Checked without a DNS lookup: the scheme, the allowed hosts, and addresses written into the URL
+    private boolean isAllowed(URI uri) {
+        String host = uri.getHost();
+        if (!("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme())) || host == null) {
+            return false;
+        }
+        host = host.toLowerCase(Locale.ROOT);
+        if (!allowPrivateAddresses && (host.startsWith("[") || IPV4_LITERAL.matcher(host).matches())) {
+            try {
+                if (!isPublic(InetAddress.getByName(host))) {
+                    return false;
+                }
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        if (allowedHosts.isEmpty()) {
+            return true;
+        }
+        for (String allowed : allowedHosts) {
+            if (host.equals(allowed) || host.endsWith("." + allowed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isPublic(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return false;
+        }
+        byte[] bytes = address.getAddress();
+        if (bytes.length == 16) {
+            // Unique local fc00::/7
+            return (bytes[0] & 0xfe) != 0xfc;
+        }
+        // Shared address space 100.64.0.0/10
+        return !(bytes[0] == 100 && (bytes[1] & 0xc0) == 64);
+    }
+
+    private BufferedImage decode(byte[] data) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxSourcePixels) {
+                    throw new IOException("Image of " + width + "x" + height + " pixels is too large");
+                }
+                // Skip the pixels that would be scaled away anyway: decode at no less than twice
+                // the largest size, which is still enough for a smooth downscale
+                int step = Integer.MAX_VALUE;
+                for (ProductImageSize size : ProductImageSize.values()) {
+                    step = Math.min(step, Math.max(1, Math.min(width / (2 * size.getWidth()), height / (2 * size.getHeight()))));
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage source, ProductImageSize size) {
+        double scaleX = size.getWidth() / (double) source.getWidth();
+        double scaleY = size.getHeight() / (double) source.getHeight();
+        // Never enlarge; crop to fill the frame, or fit within it
+        double scale = Math.min(1, size.isCrop() ? Math.max(scaleX, scaleY) : Math.min(scaleX, scaleY));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        int frameWidth = size.isCrop() ? Math.min(width, size.getWidth()) : width;
+        int frameHeight = size.isCrop() ? Math.min(height, size.getHeight()) : height;
+        BufferedImage target = new BufferedImage(frameWidth, frameHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            // JPEG has no transparency: transparent areas become white, like the page behind them
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, frameWidth, frameHeight);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, (frameWidth - width) / 2, (frameHeight - height) / 2, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encode(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    // A store smaller than one product's images evicts them as they are written
+    private static StoredImage available(StoredImage image) {
+        return image != null && Files.isReadable(image.getPath()) ? image : null;
+    }
+
+    private static String sourceHash(String url) {
+        return DigestUtils.md5DigestAsHex(url.getBytes(StandardCharsets.UTF_8)).substring(0, 12);
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// In-memory inverted index over product names and descriptions. Every query token is matched
+// as a prefix against the sorted term dictionary; a product must match all tokens and is ranked
+// by field weight x idf, with exact term matches ranked above prefix-only matches.
+// Built once the application is ready and kept current by ProductService on save and delete.
+// Saves and deletes made while a rebuild reads the catalog are recorded and replayed onto the
+// new index before it replaces the old one, so a rebuild never loses them.
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final float PREFIX_MATCH_FACTOR = 0.5f;
+    private static final int BUILD_BATCH_SIZE = 500;
+
+    private static final Pattern NON_TOKEN = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock rebuildLock = new ReentrantLock();
+
+    // term -> (product id -> weight of the term in that product)
+    private TreeMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private Map<Long, Map<String, Float>> termsByProduct = new HashMap<>();
+
+    // product id -> its terms, or null if removed; only while a rebuild is running
+    private Map<Long, Map<String, Float>> changedDuringRebuild;
+
+    public static class Hits {
+        private final List<Long> productIds;
+        private final int total;
+
+        Hits(List<Long> productIds, int total) {
+            this.productIds = productIds;
+            this.total = total;
+        }
+
+        public List<Long> getProductIds() {
+            return productIds;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            long start = System.nanoTime();
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = new LinkedHashMap<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            TreeMap<String, Map<Long, Float>> newPostings = new TreeMap<>();
+            Map<Long, Map<String, Float>> newTerms = new HashMap<>();
+            long afterId = 0;
+            List<Product> batch;
+            do {
+                batch = productRepository.findPageOrderById(afterId, 0, Double.MAX_VALUE, "%", PageRequest.of(0, BUILD_BATCH_SIZE));
+                for (Product product : batch) {
+                    add(newPostings, newTerms, product.getId(), terms(product));
+                    afterId = product.getId();
+                }
+            } while (batch.size() == BUILD_BATCH_SIZE);
+
+            int replayed;
+            lock.writeLock().lock();
+            try {
+                for (Map.Entry<Long, Map<String, Float>> change : changedDuringRebuild.entrySet()) {
+                    remove(newPostings, newTerms, change.getKey());
+                    if (change.getValue() != null) {
+                        add(newPostings, newTerms, change.getKey(), change.getValue());
+                    }
+                }
+                replayed = changedDuringRebuild.size();
+                postings = newPostings;
+                termsByProduct = newTerms;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.info("Search index built: {} products, {} terms in {} ms ({} changes replayed)",
+                    newTerms.size(), newPostings.size(), (System.nanoTime() - start) / 1_000_000, replayed);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            rebuildLock.unlock();
+        }
+    }
+
+    public void index(Product product) {
+        Map<String, Float> terms = terms(product);
+        lock.writeLock().lock();
+        try {
+            remove(postings, termsByProduct, product.getId());
+            add(postings, termsByProduct, product.getId(), terms);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(product.getId(), terms);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            remove(postings, termsByProduct, productId);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(productId, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Hits search(String text, int limit) {
+        Set<String> tokens = new LinkedHashSet<>(tokenize(text));
+        if (tokens.isEmpty()) {
+            return new Hits(List.of(), 0);
+        }
+        Map<Long, Float> scores;
+        lock.readLock().lock();
+        try {
+            int documents = termsByProduct.size();
+            // Start from the most selective token; the others are then checked only against the
+            // remaining candidates' own terms instead of walking their (possibly huge) postings
+            List<String> ordered = new ArrayList<>(tokens);
+            Map<String, Integer> matches = new HashMap<>();
+            for (String token : ordered) {
+                int count = 0;
+                for (Map<Long, Float> products : prefixRange(token).values()) {
+                    count += products.size();
+                }
+                if (count == 0) {
+                    return new Hits(List.of(), 0);
+                }
+                matches.put(token, count);
+            }
+            ordered.sort(Comparator.comparing(matches::get));
+
+            String first = ordered.get(0);
+            scores = new HashMap<>();
+            for (Map.Entry<String, Map<Long, Float>> term : prefixRange(first).entrySet()) {
+                float termScore = idf(documents, term.getValue().size()) * (term.getKey().equals(first) ? 1f : PREFIX_MATCH_FACTOR);
+                for (Map.Entry<Long, Float> posting : term.getValue().entrySet()) {
+                    scores.merge(posting.getKey(), posting.getValue() * termScore, Math::max);
+                }
+            }
+            for (String token : ordered.subList(1, ordered.size())) {
+                Iterator<Map.Entry<Long, Float>> candidates = scores.entrySet().iterator();
+                while (candidates.hasNext()) {
+                    Map.Entry<Long, Float> candidate = candidates.next();
+                    float best = 0;
+                    for (Map.Entry<String, Float> term : termsByProduct.get(candidate.getKey()).entrySet()) {
+                        if (term.getKey().startsWith(token)) {
+                            float factor = term.getKey().length() == token.length() ? 1f : PREFIX_MATCH_FACTOR;
+                            best = Math.max(best, term.getValue() * idf(documents, postings.get(term.getKey()).size()) * factor);
+                        }
+                    }
+                    if (best == 0) {
+                        candidates.remove();
+                    } else {
+                        candidate.setValue(candidate.getValue() + best);
+                    }
+                }
+                if (scores.isEmpty()) {
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Keep only the best `limit` hits rather than sorting every match
+        Comparator<Map.Entry<Long, Float>> byRank = Map.Entry.<Long, Float>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey());
+        PriorityQueue<Map.Entry<Long, Float>> top = new PriorityQueue<>(byRank.reversed());
+        for (Map.Entry<Long, Float> score : scores.entrySet()) {
+            top.offer(score);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<Map.Entry<Long, Float>> ranked = new ArrayList<>(top);
+        ranked.sort(byRank);
+        List<Long> ids = new ArrayList<>(ranked.size());
+        for (Map.Entry<Long, Float> hit : ranked) {
+            ids.add(hit.getKey());
+        }
+        return new Hits(ids, scores.size());
+    }
+
+    private SortedMap<String, Map<Long, Float>> prefixRange(String token) {
+        return postings.subMap(token, true, token + Character.MAX_VALUE, false);
+    }
+
+    private static float idf(int documents, int frequency) {
+        return (float) Math.log(1 + (double) documents / frequency);
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_TOKEN.split(folded.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // Not modified once built: the same map may be shared by the live index and one being rebuilt
+    private static Map<String, Float> terms(Product product) {
+        Map<String, Float> weights = new HashMap<>();
+        for (String token : tokenize(product.getName())) {
+            weights.merge(token, NAME_WEIGHT, Float::sum);
+        }
+        for (String token : tokenize(product.getDescription())) {
+            weights.merge(token, DESCRIPTION_WEIGHT, Float::sum);
+        }
+        for (Map.Entry<String, Float> weight : weights.entrySet()) {
+            // Dampened so a term repeated in a long description does not outrank a name match
+            weight.setValue(1f + (float) Math.log(weight.getValue()));
+        }
+        return weights;
+    }
+
+    private static void add(TreeMap<String, Map<Long, Float>> postings, Map<Long, Map<String, Float>> termsByProduct,
+                            Long productId, Map<String, Float> terms) {
+        for (Map.Entry<String, Float> term : terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), t -> new HashMap<>()).put(productId, term.getValue());
+        }
+        termsByProduct.put(productId, terms);
+    }
+
+    private static void remove(TreeMap<String, Map<Long, Float>> postings, Map<Long, Map<String, Float>> termsByProduct,
+                               Long productId) {
+        Map<String, Float> terms = termsByProduct.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms.keySet()) {
+            Map<Long, Float> products = postings.get(term);
+            if (products != null) {
+                products.remove(productId);
+                if (products.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+}
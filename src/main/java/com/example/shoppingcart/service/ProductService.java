@@ -1,24 +1,71 @@
 package com.example.shoppingcart.service;
 
+import com.example.shoppingcart.config.CacheConfig;
+import com.example.shoppingcart.config.MetricsConfig;
+import com.example.shoppingcart.config.ReadYourWrites;
+import com.example.shoppingcart.exception.ConcurrentUpdateException;
 import com.example.shoppingcart.exception.ServiceException;
 import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.ProductPage;
+import com.example.shoppingcart.model.ProductQuery;
+import com.example.shoppingcart.model.ProductSearchResult;
+import com.example.shoppingcart.model.ProductSummary;
 import com.example.shoppingcart.repository.ProductRepository;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
+@Timed(MetricsConfig.SERVICE_TIMER)
 public class ProductService {
 
     private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
 
+    public static final int DEFAULT_PAGE_SIZE = 24;
+    public static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    // Calls through the proxy, for @Transactional on methods reached from a @Cacheable one
+    @Lazy
+    @Autowired
+    private ProductService self;
+
+    @Autowired
+    private ProductImageService productImageService;
+
+    @Transactional(readOnly = true)
     public List<Product> getAllProducts() {
         try {
             logger.debug("Fetching all products");
@@ -29,6 +76,51 @@ public class ProductService {
         }
     }
 
+    @Cacheable(cacheNames = CacheConfig.PRODUCT_PAGES, key = "#query")
+    public ProductPage getProductPage(ProductQuery query) {
+        return self.scanProductPage(query);
+    }
+
+    // getProductPage without the page cache, for callers walking the whole catalog page by page
+    @Transactional(readOnly = true)
+    public ProductPage scanProductPage(ProductQuery query) {
+        try {
+            int size = resolvePageSize(query.getSize());
+            logger.debug("Fetching product page: sort={}, afterId={}, afterPrice={}, size={}",
+                    query.getSort(), query.getAfterId(), query.getAfterPrice(), size);
+
+            // Fetch one extra row to learn whether another page exists without a COUNT query.
+            Pageable limit = PageRequest.of(0, size + 1);
+            long afterId = query.getAfterId() != null ? query.getAfterId() : 0L;
+            double minPrice = query.getMinPrice() != null ? query.getMinPrice() : 0;
+            double maxPrice = query.getMaxPrice() != null ? query.getMaxPrice() : Double.MAX_VALUE;
+            String namePattern = toPrefixPattern(query.getName());
+
+            List<Product> rows;
+            if (query.isSortByPrice()) {
+                double afterPrice = query.getAfterPrice() != null ? query.getAfterPrice() : -Double.MAX_VALUE;
+                rows = productRepository.findPageOrderByPrice(afterPrice, afterId, minPrice, maxPrice, namePattern, limit);
+            } else {
+                rows = productRepository.findPageOrderById(afterId, minPrice, maxPrice, namePattern, limit);
+            }
+
+            boolean hasNext = rows.size() > size;
+            List<ProductSummary> items = new ArrayList<>(Math.min(rows.size(), size));
+            for (Product product : hasNext ? rows.subList(0, size) : rows) {
+                items.add(ProductSummary.of(product));
+            }
+            if (!hasNext) {
+                return new ProductPage(items, false, null, null);
+            }
+            ProductSummary last = items.get(items.size() - 1);
+            return new ProductPage(items, true, last.getId(), last.getPrice());
+        } catch (Exception e) {
+            logger.error("Error fetching product page", e);
+            throw new ServiceException("Error fetching product page", e);
+        }
+    }
+
+    @Cacheable(cacheNames = CacheConfig.PRODUCTS, key = "#id")
     public Optional<Product> getProductById(Long id) {
         try {
             logger.debug("Fetching product by id: {}", id);
@@ -39,23 +131,183 @@ public class ProductService {
         }
     }
 
+    // For edit forms, which must carry the current version: read from the primary, not the cache
+    // or a replica (the transaction is read-write only for its routing)
+    @Transactional
+    public Optional<Product> getProductForEdit(Long id) {
+        try {
+            logger.debug("Fetching product for edit, id: {}", id);
+            return productRepository.findById(id);
+        } catch (Exception e) {
+            logger.error("Error fetching product for edit, id: {}", id, e);
+            throw new ServiceException("Error fetching product for edit: " + id, e);
+        }
+    }
+
+    // Version (@Version) of a product for conditional requests, read from the database with a
+    // single-column query so answering 304 never loads the entity. Not from the product cache:
+    // stock reservations and imports write with SQL. A cached product of another version is
+    // dropped, so a response tagged with this version is not built from it.
+    public Optional<Long> getProductVersion(Long id) {
+        try {
+            Optional<Long> version = productRepository.findVersionById(id);
+            Cache cache = cacheManager.getCache(CacheConfig.PRODUCTS);
+            Cache.ValueWrapper cached = cache != null ? cache.get(id) : null;
+            if (cached != null) {
+                Product product = (Product) cached.get();
+                if (product == null ? version.isPresent() : !version.equals(Optional.of(versionOf(product)))) {
+                    logger.debug("Dropping cached product id: {}, it is not at version {}", id, version.orElse(null));
+                    cache.evict(id);
+                }
+            }
+            return version;
+        } catch (Exception e) {
+            logger.error("Error fetching product version, id: {}", id, e);
+            throw new ServiceException("Error fetching product version: " + id, e);
+        }
+    }
+
+    // After a checkout's stock reservation commits. The UPDATE bypassed JPA, so the cached products
+    // and every cached listing page that shows one of them are dropped. After a sell-out, everyone
+    // reads from the primary for a while, so those caches are not refilled from a replica that
+    // still shows the stock.
+    public void stockChanged(Collection<Long> productIds, boolean soldOut) {
+        if (soldOut) {
+            readYourWrites.pinEveryone();
+        }
+        Cache products = cacheManager.getCache(CacheConfig.PRODUCTS);
+        if (products != null) {
+            productIds.forEach(products::evict);
+        }
+        if (cacheManager.getCache(CacheConfig.PRODUCT_PAGES) instanceof CaffeineCache pages) {
+            pages.getNativeCache().asMap().values().removeIf(cached -> cached instanceof ProductPage page && lists(page, productIds));
+        }
+    }
+
+    private static boolean lists(ProductPage page, Collection<Long> productIds) {
+        for (ProductSummary item : page.getItems()) {
+            if (productIds.contains(item.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static long versionOf(Product product) {
+        return product.getVersion() != null ? product.getVersion() : 0L;
+    }
+
+    public static long versionOf(ProductSummary product) {
+        return product.getVersion() != null ? product.getVersion() : 0L;
+    }
+
+    public List<Product> getProductsByIds(Collection<Long> ids) {
+        try {
+            logger.debug("Fetching {} products by id", ids.size());
+            // Serve what we can from the product cache and load the rest in one query
+            Cache cache = cacheManager.getCache(CacheConfig.PRODUCTS);
+            List<Product> products = new ArrayList<>(ids.size());
+            List<Long> missing = new ArrayList<>();
+            for (Long id : ids) {
+                Cache.ValueWrapper cached = cache != null ? cache.get(id) : null;
+                if (cached == null) {
+                    missing.add(id);
+                } else if (cached.get() != null) {
+                    products.add((Product) cached.get());
+                }
+            }
+            if (!missing.isEmpty()) {
+                for (Product product : productRepository.findAllById(missing)) {
+                    if (cache != null) {
+                        cache.put(product.getId(), product);
+                    }
+                    products.add(product);
+                }
+            }
+            return products;
+        } catch (Exception e) {
+            logger.error("Error fetching products by ids", e);
+            throw new ServiceException("Error fetching products by ids", e);
+        }
+    }
+
+    public ProductSearchResult searchProducts(String text, Integer size) {
+        try {
+            logger.debug("Searching products: {}", text);
+            ProductSearchIndex.Hits hits = searchIndex.search(text, resolvePageSize(size));
+            Map<Long, Product> products = new HashMap<>();
+            for (Product product : getProductsByIds(hits.getProductIds())) {
+                products.put(product.getId(), product);
+            }
+            // Keep the index's ranking order
+            List<Product> items = new ArrayList<>(hits.getProductIds().size());
+            for (Long id : hits.getProductIds()) {
+                Product product = products.get(id);
+                if (product != null) {
+                    items.add(product);
+                }
+            }
+            return new ProductSearchResult(text, items, hits.getTotal());
+        } catch (Exception e) {
+            logger.error("Error searching products: {}", text, e);
+            throw new ServiceException("Error searching products", e);
+        }
+    }
+
+    @Caching(
+            put = @CachePut(cacheNames = CacheConfig.PRODUCTS, key = "#result.id"),
+            evict = @CacheEvict(cacheNames = CacheConfig.PRODUCT_PAGES, allEntries = true))
     public Product saveProduct(Product product) {
         try {
             logger.info("Saving product: {}", product.getName());
-            return productRepository.save(product);
+            Product saved = productRepository.save(product);
+            // The product caches refill from the next reads; keep those off replicas that may not have the change yet
+            readYourWrites.pinEveryone();
+            searchIndex.index(saved);
+            productImageService.evict(saved.getId());
+            return saved;
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("Product {} changed since version {}, not saving", product.getId(), product.getVersion());
+            throw new ConcurrentUpdateException("Product " + product.getName()
+                    + " was changed by someone else (or sold) since it was loaded", e);
         } catch (Exception e) {
             logger.error("Error saving product: {}", product.getName(), e);
             throw new ServiceException("Error saving product: " + product.getName(), e);
         }
     }
 
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PRODUCTS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT_PAGES, allEntries = true)})
     public void deleteProduct(Long id) {
         try {
             logger.info("Deleting product id: {}", id);
             productRepository.deleteById(id);
+            readYourWrites.pinEveryone();
+            searchIndex.remove(id);
+            productImageService.evict(id);
         } catch (Exception e) {
             logger.error("Error deleting product id: {}", id, e);
             throw new ServiceException("Error deleting product id: " + id, e);
         }
     }
+
+    private int resolvePageSize(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(requested, MAX_PAGE_SIZE);
+    }
+
+    private String toPrefixPattern(String name) {
+        if (name == null || name.isBlank()) {
+            return "%";
+        }
+        // '!' is the ESCAPE character declared in the repository queries
+        String escaped = name.trim()
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_");
+        return escaped + "%";
+    }
 }
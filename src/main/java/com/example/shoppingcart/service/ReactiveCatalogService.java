@@ -0,0 +1,124 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.ProductPage;
+import com.example.shoppingcart.model.ProductQuery;
+import com.example.shoppingcart.model.ProductSummary;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Optional;
+
+// Catalog reads for the functional /api/reactive endpoints. JDBC blocks, so queries run on a
+// scheduler capped at the connection pool size and request threads only subscribe. Streams are
+// demand driven: the next keyset page is read only when the client has taken the previous one,
+// with one page read ahead, so a slow reader holds a connection only while a page is queried.
+@Service
+public class ReactiveCatalogService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveCatalogService.class);
+
+    @Autowired
+    private ProductService productService;
+
+    @Value("${app.catalog.stream.page-size:100}")
+    private int pageSize;
+
+    // 0 = one thread per pooled connection
+    @Value("${app.catalog.stream.db-threads:0}")
+    private int dbThreads;
+
+    @Value("${app.catalog.stream.queued-tasks:10000}")
+    private int queuedTasks;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int maximumPoolSize;
+
+    private Scheduler dbScheduler;
+
+    @PostConstruct
+    public void start() {
+        int threads = dbThreads > 0 ? dbThreads : maximumPoolSize;
+        dbScheduler = Schedulers.newBoundedElastic(threads, queuedTasks, "catalog-db");
+        logger.info("Reactive catalog queries run on {} threads", threads);
+    }
+
+    @PreDestroy
+    public void stop() {
+        dbScheduler.dispose();
+    }
+
+    /**
+     * Every product matching the query, in the query's sort order, one keyset page per element.
+     * The query's size is the page size (capped like the paged API); {@code limit} caps the
+     * number of products, or streams to the end of the catalog when {@code null}.
+     */
+    public Flux<List<ProductSummary>> streamProducts(ProductQuery query, Integer limit) {
+        ProductQuery first = copy(query);
+        long max = limit != null && limit > 0 ? limit : Long.MAX_VALUE;
+        int size = first.getSize() != null ? first.getSize() : pageSize;
+        first.setSize((int) Math.min(size, max));
+        Flux<List<ProductSummary>> pages = Flux.<List<ProductSummary>, ProductQuery>generate(() -> first, (next, sink) -> {
+            ProductPage page = productService.scanProductPage(next);
+            if (!page.getItems().isEmpty()) {
+                sink.next(page.getItems());
+            }
+            if (!page.isHasNext()) {
+                sink.complete();
+                return next;
+            }
+            ProductQuery following = copy(next);
+            following.setAfterId(page.getNextAfterId());
+            following.setAfterPrice(page.getNextAfterPrice());
+            return following;
+        });
+        return truncate(pages, max)
+                .subscribeOn(dbScheduler)
+                // Client writes block too; keep them off the database threads
+                .publishOn(Schedulers.boundedElastic(), 1);
+    }
+
+    public Mono<Optional<Product>> getProduct(Long id) {
+        return Mono.fromCallable(() -> productService.getProductById(id)).subscribeOn(dbScheduler);
+    }
+
+    private static Flux<List<ProductSummary>> truncate(Flux<List<ProductSummary>> pages, long max) {
+        if (max == Long.MAX_VALUE) {
+            return pages;
+        }
+        return Flux.defer(() -> {
+            long[] remaining = {max};
+            return pages.handle((items, sink) -> {
+                if (items.size() >= remaining[0]) {
+                    sink.next(items.subList(0, (int) remaining[0]));
+                    sink.complete();
+                } else {
+                    remaining[0] -= items.size();
+                    sink.next(items);
+                }
+            });
+        });
+    }
+
+    private static ProductQuery copy(ProductQuery query) {
+        ProductQuery copy = new ProductQuery();
+        copy.setSort(query.getSort());
+        copy.setAfterId(query.getAfterId());
+        copy.setAfterPrice(query.getAfterPrice());
+        copy.setMinPrice(query.getMinPrice());
+        copy.setMaxPrice(query.getMaxPrice());
+        copy.setName(query.getName());
+        copy.setSize(query.getSize());
+        return copy;
+    }
+}
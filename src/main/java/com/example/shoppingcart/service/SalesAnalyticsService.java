@@ -0,0 +1,167 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.config.MetricsConfig;
+import com.example.shoppingcart.exception.ServiceException;
+import com.example.shoppingcart.model.Order;
+import com.example.shoppingcart.model.OrderItem;
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.SalesSummary;
+import com.example.shoppingcart.repository.SalesAggregateRepository;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Revenue by day, top products and orders by status, read from rollups that OrderService
+// keeps current inside its own transactions. A summary reads at most one row per day, slot
+// and status plus the top products, so its cost does not grow with the order history.
+// Cancelled orders count towards their status but not towards revenue or units.
+@Service
+@Timed(MetricsConfig.SERVICE_TIMER)
+public class SalesAnalyticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesAnalyticsService.class);
+
+    public static final String CANCELLED = "CANCELLED";
+    public static final int DEFAULT_DAYS = 30;
+    public static final int MAX_DAYS = 366;
+    public static final int TOP_PRODUCTS = 10;
+
+    @Autowired
+    private SalesAggregateRepository salesAggregateRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Called from the transaction that creates the order
+    public void recordOrder(Order order, List<OrderItem> items) {
+        salesAggregateRepository.addToDay(order.getOrderDate().toLocalDate(), order.getId(), 1, units(items), order.getTotalAmount());
+        salesAggregateRepository.addToStatus(order.getStatus(), order.getId(), 1);
+        salesAggregateRepository.addToProducts(productLines(items), 1);
+    }
+
+    // Called from the transaction that changes the status, before the order itself is updated
+    public void recordStatusChange(Order order, String oldStatus, String newStatus) {
+        if (oldStatus.equals(newStatus)) {
+            return;
+        }
+        boolean wasCounted = !CANCELLED.equals(oldStatus);
+        boolean counted = !CANCELLED.equals(newStatus);
+        int sign = counted ? 1 : -1;
+        List<OrderItem> items = wasCounted != counted ? order.getItems() : List.of();
+        if (wasCounted != counted) {
+            salesAggregateRepository.addToDay(order.getOrderDate().toLocalDate(), order.getId(),
+                    sign, sign * units(items), sign * order.getTotalAmount());
+        }
+        // Same lock order as recordOrder: day, then status rows (by name), then products
+        boolean oldFirst = oldStatus.compareTo(newStatus) < 0;
+        salesAggregateRepository.addToStatus(oldFirst ? oldStatus : newStatus, order.getId(), oldFirst ? -1 : 1);
+        salesAggregateRepository.addToStatus(oldFirst ? newStatus : oldStatus, order.getId(), oldFirst ? 1 : -1);
+        if (wasCounted != counted) {
+            salesAggregateRepository.addToProducts(productLines(items), sign);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public SalesSummary getSummary(Integer days) {
+        try {
+            int span = days == null || days <= 0 ? DEFAULT_DAYS : Math.min(days, MAX_DAYS);
+            LocalDate to = LocalDate.now();
+            LocalDate from = to.minusDays(span - 1);
+            logger.debug("Fetching sales summary from {} to {}", from, to);
+
+            // Every day of the range, including the ones without sales
+            Map<LocalDate, SalesSummary.Day> sold = new HashMap<>();
+            for (SalesSummary.Day day : salesAggregateRepository.findDays(from, to)) {
+                sold.put(day.getDay(), day);
+            }
+            List<SalesSummary.Day> series = new ArrayList<>(span);
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                series.add(sold.getOrDefault(day, new SalesSummary.Day(day, 0, 0, BigDecimal.ZERO)));
+            }
+
+            List<SalesSummary.ProductSales> top = salesAggregateRepository.findTopProducts(TOP_PRODUCTS);
+            List<Long> ids = new ArrayList<>(top.size());
+            for (SalesSummary.ProductSales product : top) {
+                ids.add(product.getProductId());
+            }
+            Map<Long, String> names = new HashMap<>();
+            for (Product product : productService.getProductsByIds(ids)) {
+                names.put(product.getId(), product.getName());
+            }
+            for (SalesSummary.ProductSales product : top) {
+                product.setProductName(names.getOrDefault(product.getProductId(), "Product #" + product.getProductId()));
+            }
+            return new SalesSummary(from, to, series, top, salesAggregateRepository.findOrdersByStatus());
+        } catch (Exception e) {
+            logger.error("Error fetching sales summary", e);
+            throw new ServiceException("Error fetching sales summary", e);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Long> getOrdersByStatus() {
+        try {
+            return salesAggregateRepository.findOrdersByStatus();
+        } catch (Exception e) {
+            logger.error("Error counting orders by status", e);
+            throw new ServiceException("Error counting orders by status", e);
+        }
+    }
+
+    // Recomputes the rollups from the full order history. Orders placed while it runs may be
+    // counted twice or not at all, so run it when the shop is quiet.
+    public void rebuild() {
+        try {
+            long start = System.nanoTime();
+            logger.info("Rebuilding sales rollups from the order history");
+            transactionTemplate.executeWithoutResult(status -> salesAggregateRepository.rebuild(CANCELLED));
+            logger.info("Sales rollups rebuilt in {} ms", (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            logger.error("Error rebuilding sales rollups", e);
+            throw new ServiceException("Error rebuilding sales rollups", e);
+        }
+    }
+
+    // Backfills the rollups on the first start after they were introduced
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (salesAggregateRepository.isEmpty()) {
+            rebuild();
+        }
+    }
+
+    private static long units(List<OrderItem> items) {
+        long units = 0;
+        for (OrderItem item : items) {
+            units += item.getQuantity();
+        }
+        return units;
+    }
+
+    // product id -> {units, revenue}
+    private static Map<Long, double[]> productLines(List<OrderItem> items) {
+        Map<Long, double[]> lines = new HashMap<>();
+        for (OrderItem item : items) {
+            double[] line = lines.computeIfAbsent(item.getProduct().getId(), id -> new double[2]);
+            line[0] += item.getQuantity();
+            line[1] += item.getPrice() * item.getQuantity();
+        }
+        return lines;
+    }
+}
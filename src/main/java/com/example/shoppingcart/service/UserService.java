@@ -0,0 +1,61 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.config.CacheConfig;
+import com.example.shoppingcart.config.MetricsConfig;
+import com.example.shoppingcart.exception.ServiceException;
+import com.example.shoppingcart.model.User;
+import com.example.shoppingcart.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+@Service
+@Timed(MetricsConfig.SERVICE_TIMER)
+public class UserService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    // Also fills the users cache, so the first page after login does not read the row again
+    @CachePut(value = CacheConfig.USERS, key = "#result.id", unless = "#result == null")
+    public Optional<User> findByUsername(String username) {
+        try {
+            logger.debug("Fetching user by username: {}", username);
+            return userRepository.findByUsername(username);
+        } catch (Exception e) {
+            logger.error("Error fetching user by username: {}", username, e);
+            throw new ServiceException("Error fetching user by username", e);
+        }
+    }
+
+    @Cacheable(value = CacheConfig.USERS, key = "#id")
+    public Optional<User> getUserById(Long id) {
+        try {
+            logger.debug("Fetching user by id: {}", id);
+            return userRepository.findById(id);
+        } catch (Exception e) {
+            logger.error("Error fetching user by id: {}", id, e);
+            throw new ServiceException("Error fetching user by id", e);
+        }
+    }
+
+    @CacheEvict(value = CacheConfig.USERS, key = "#id")
+    public void updatePassword(Long id, String encodedPassword) {
+        try {
+            logger.info("Updating password hash for user id: {}", id);
+            userRepository.updatePassword(id, encodedPassword);
+        } catch (Exception e) {
+            logger.error("Error updating password hash for user id: {}", id, e);
+            throw new ServiceException("Error updating password hash", e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.model.Order;
+import com.example.shoppingcart.model.OrderItem;
+import com.example.shoppingcart.model.OutboxEvent;
+import com.example.shoppingcart.repository.OrderRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+// Stand-in for the warehouse integration: logs the pick list for new orders and the
+// cancellations the warehouse would need to stop
+@Component
+public class WarehouseNotificationHandler implements OutboxHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarehouseNotificationHandler.class);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    public String getName() {
+        return "warehouse";
+    }
+
+    @Override
+    public boolean handles(String eventType) {
+        return OutboxService.ORDER_CREATED.equals(eventType) || OutboxService.ORDER_STATUS_CHANGED.equals(eventType);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) throws Exception {
+        if (OutboxService.ORDER_CREATED.equals(event.getEventType())) {
+            // The event only carries the order id; the lines are read here, off the checkout path
+            Optional<Order> order = orderRepository.findWithItemsById(event.getAggregateId());
+            if (order.isEmpty()) {
+                logger.warn("Warehouse: order #{} no longer exists, nothing to pick", event.getAggregateId());
+                return;
+            }
+            for (OrderItem item : order.get().getItems()) {
+                logger.info("Warehouse: pick {} x {} (product {}) for order #{}", item.getQuantity(),
+                        item.getProduct().getName(), item.getProduct().getId(), event.getAggregateId());
+            }
+            return;
+        }
+        JsonNode payload = objectMapper.readTree(event.getPayload());
+        if (SalesAnalyticsService.CANCELLED.equals(payload.path("newStatus").asText())) {
+            logger.info("Warehouse: cancel fulfilment of order #{}", event.getAggregateId());
+        }
+    }
+}
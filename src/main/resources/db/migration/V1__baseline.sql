@@ -0,0 +1,101 @@
+-- Schema as of the first versioned release. Every statement is idempotent so that databases
+-- created before migrations existed (by ddl-auto=update, or by the tables the application used to
+-- create at startup) are baselined at version 0 and only get the tables they are missing.
+
+CREATE TABLE IF NOT EXISTS users (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    username VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    role VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_username UNIQUE (username)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS products (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255),
+    description VARCHAR(255),
+    price FLOAT(53) NOT NULL,
+    image_url VARCHAR(255),
+    stock INTEGER,
+    updated_at BIGINT,
+    PRIMARY KEY (id),
+    INDEX idx_products_price_id (price, id),
+    INDEX idx_products_name (name)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS orders (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    user_id BIGINT NOT NULL,
+    order_date DATETIME(6),
+    status VARCHAR(255),
+    total_amount FLOAT(53) NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_orders_status_date (status, order_date),
+    INDEX idx_orders_user_date (user_id, order_date),
+    INDEX idx_orders_date (order_date),
+    CONSTRAINT fk_orders_user FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS order_items (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    order_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    quantity INTEGER NOT NULL,
+    price FLOAT(53) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_order_items_order FOREIGN KEY (order_id) REFERENCES orders (id),
+    CONSTRAINT fk_order_items_product FOREIGN KEY (product_id) REFERENCES products (id)
+) ENGINE=InnoDB;
+
+-- Shared carts (app.cart.store=jdbc)
+CREATE TABLE IF NOT EXISTS carts (
+    cart_id VARCHAR(36) NOT NULL PRIMARY KEY,
+    data BLOB NOT NULL,
+    updated_at BIGINT NOT NULL
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(64) NOT NULL,
+    aggregate_id BIGINT NOT NULL,
+    payload VARCHAR(2000) NOT NULL,
+    handler VARCHAR(64) NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    attempts INT NOT NULL,
+    available_at BIGINT NOT NULL,
+    created_at BIGINT NOT NULL,
+    last_error VARCHAR(1000),
+    INDEX idx_outbox_due (status, available_at)
+) ENGINE=InnoDB;
+
+-- Sales rollups (SalesAggregateRepository)
+CREATE TABLE IF NOT EXISTS sales_daily (
+    sale_date DATE NOT NULL,
+    slot INT NOT NULL,
+    orders BIGINT NOT NULL,
+    units BIGINT NOT NULL,
+    revenue DECIMAL(19, 2) NOT NULL,
+    PRIMARY KEY (sale_date, slot)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS sales_by_status (
+    status VARCHAR(32) NOT NULL,
+    slot INT NOT NULL,
+    orders BIGINT NOT NULL,
+    PRIMARY KEY (status, slot)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS sales_by_product (
+    product_id BIGINT NOT NULL PRIMARY KEY,
+    orders BIGINT NOT NULL,
+    units BIGINT NOT NULL,
+    revenue DECIMAL(19, 2) NOT NULL,
+    INDEX idx_sales_by_product_revenue (revenue)
+) ENGINE=InnoDB;
+
+-- Read replica lag checks (app.datasource.replica.max-lag)
+CREATE TABLE IF NOT EXISTS replication_heartbeat (
+    id INT NOT NULL PRIMARY KEY,
+    beat BIGINT NOT NULL
+) ENGINE=InnoDB;
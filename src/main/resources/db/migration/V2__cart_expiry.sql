@@ -0,0 +1,2 @@
+-- JdbcCartStore purges carts by updated_at
+CREATE INDEX idx_carts_updated_at ON carts (updated_at);
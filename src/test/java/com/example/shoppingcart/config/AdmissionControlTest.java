@@ -0,0 +1,133 @@
+package com.example.shoppingcart.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Anonymous clients behind a trusted proxy are rate limited by their forwarded address, each with
+// a bucket of its own, and product images do not use up the catalog budget of the page that shows
+// them. Requests over a group's concurrency cap are shed with 503, and the cap comes down while
+// the group is slower than its target latency. Runs on a real server so Tomcat applies the
+// forwarded headers.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        // One request per 100 s after the burst, so the buckets do not refill during the test
+        "app.admission.catalog.rate=0.01", "app.admission.catalog.burst=3",
+        "app.admission.images.rate=100", "app.admission.images.burst=200"})
+@ActiveProfiles("test")
+class AdmissionControlTest {
+
+    private static final int CATALOG_BURST = 3;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void clientsBehindAProxyAreLimitedByTheirOwnAddress() throws Exception {
+        double limited = meterRegistry.counter(MetricsConfig.ADMISSION, "group", "catalog", "outcome", "rate-limited").count();
+        for (int i = 0; i < CATALOG_BURST; i++) {
+            assertEquals(200, get("/search?name=lamp", "203.0.113.10").statusCode());
+        }
+        HttpResponse<String> rejected = get("/search?name=lamp", "203.0.113.10");
+        assertEquals(429, rejected.statusCode());
+        assertNotNull(rejected.headers().firstValue("Retry-After").orElse(null));
+        assertEquals(limited + 1, meterRegistry.counter(MetricsConfig.ADMISSION, "group", "catalog", "outcome", "rate-limited").count());
+
+        assertEquals(200, get("/search?name=lamp", "203.0.113.11").statusCode());
+        assertEquals(200, get("/search?name=lamp", null).statusCode());
+    }
+
+    @Test
+    void imagesHaveABudgetOfTheirOwn() throws Exception {
+        for (int i = 0; i < CATALOG_BURST; i++) {
+            get("/search?name=lamp", "203.0.113.20");
+        }
+        assertEquals(429, get("/search?name=lamp", "203.0.113.20").statusCode());
+        // More thumbnails than the catalog burst, as a listing page would ask for
+        for (int i = 0; i < CATALOG_BURST * 10; i++) {
+            assertNotEquals(429, get("/images/products/" + (1_000_000 + i) + "/card", "203.0.113.20").statusCode());
+        }
+    }
+
+    @Test
+    void requestsOverTheConcurrencyCapAreShed() throws Exception {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        RouteGroup catalog = new RouteGroup("catalog", null, 1, 0, registry);
+        RouteGroup other = new RouteGroup("other", null, 1, 0, registry);
+        AdmissionControlFilter filter = new AdmissionControlFilter(catalog, other, other, other, other, 1);
+        assertTrue(catalog.tryEnter());
+
+        MockHttpServletResponse shed = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(new MockHttpServletRequest("GET", "/search"), shed, chain);
+        assertEquals(503, shed.getStatus());
+        assertEquals("1", shed.getHeader("Retry-After"));
+        assertNull(chain.getRequest());
+
+        catalog.exit(0);
+        MockHttpServletResponse admitted = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/search"), admitted, new MockFilterChain());
+        assertEquals(200, admitted.getStatus());
+        assertEquals(1, registry.counter(MetricsConfig.ADMISSION, "group", "catalog", "outcome", "shed").count());
+        assertEquals(2, registry.counter(MetricsConfig.ADMISSION, "group", "catalog", "outcome", "admitted").count());
+    }
+
+    @Test
+    void theCapComesDownWhileLatencyIsOverTarget() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        RouteGroup group = new RouteGroup("slow", null, 20, TimeUnit.MILLISECONDS.toNanos(100), registry);
+
+        assertTrue(group.tryEnter());
+        group.exit(TimeUnit.MILLISECONDS.toNanos(500));
+        group.adjustLimit();
+        assertEquals(18, limit(registry));
+
+        for (int i = 0; i < 18; i++) {
+            assertTrue(group.tryEnter());
+        }
+        assertFalse(group.tryEnter());
+        for (int i = 0; i < 18; i++) {
+            group.exit(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        group.adjustLimit();
+        assertEquals(19, limit(registry));
+        group.adjustLimit();
+        assertEquals(20, limit(registry));
+    }
+
+    private HttpResponse<String> get(String path, String forwardedFor) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+        if (forwardedFor != null) {
+            request.header("X-Forwarded-For", forwardedFor);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static double limit(MeterRegistry registry) {
+        return registry.get(MetricsConfig.ADMISSION_LIMIT).tag("group", "slow").gauge().value();
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.shoppingcart.config;
+
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.User;
+import com.example.shoppingcart.model.UserPrincipal;
+import com.example.shoppingcart.repository.ProductRepository;
+import com.example.shoppingcart.repository.UserRepository;
+import com.example.shoppingcart.repository.V3__ProductStockAndVersion;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// A checkout whose reads went to a replica still writes its order and stock reservation to the
+// primary: every transaction gets its own connection, so the replica connection of a read-only
+// transaction is not reused by a later write in the same request. Here the replica is a second
+// embedded database holding a copy of the rows the request reads.
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReplicaRoutingTest {
+
+    private static final String REPLICA_URL = "jdbc:h2:mem:shoppingcart-replica-" + UUID.randomUUID()
+            + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private static final int STOCK = 10;
+
+    private static JdbcTemplate replica;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void replicaProperties(DynamicPropertyRegistry registry) {
+        registry.add("app.datasource.replica.urls", () -> REPLICA_URL);
+        registry.add("app.datasource.replica.max-lag", () -> "0");
+        registry.add("app.datasource.replica.read-your-writes", () -> "1ms");
+    }
+
+    @BeforeAll
+    static void migrateReplica() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(REPLICA_URL, "sa", "");
+        Flyway.configure()
+                .dataSource(dataSource)
+                .javaMigrations(new V3__ProductStockAndVersion())
+                .load()
+                .migrate();
+        replica = new JdbcTemplate(dataSource);
+    }
+
+    @Test
+    void checkoutReadsFromTheReplicaAndWritesToThePrimary() throws Exception {
+        String name = "replica-" + UUID.randomUUID();
+        User customer = new User();
+        customer.setUsername(name);
+        customer.setPassword("unused");
+        customer.setRole("ROLE_USER");
+        customer = userRepository.save(customer);
+        Product product = productRepository.save(new Product(name, "P", 10, null, STOCK));
+        copyToReplica("users", customer.getId());
+        copyToReplica("products", product.getId());
+        UserPrincipal principal = new UserPrincipal(customer.getId(), name, "unused",
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        double replicaReads = replicaReads();
+
+        mockMvc.perform(get("/addToCart/" + product.getId()).with(user(principal)))
+                .andExpect(status().is3xxRedirection());
+        mockMvc.perform(post("/processPayment").with(user(principal)).with(csrf()))
+                .andExpect(status().isOk());
+
+        assertTrue(replicaReads() > replicaReads, "no read went to the replica");
+        assertEquals(1, countOrders(jdbcTemplate, customer.getId()));
+        assertEquals(0, countOrders(replica, customer.getId()));
+        assertEquals(STOCK - 1, jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, product.getId()));
+        assertEquals(STOCK, replica.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, product.getId()));
+    }
+
+    @Test
+    void routingRefusesToStartWithOpenInView() {
+        new ApplicationContextRunner()
+                .withInitializer(context -> context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance()))
+                .withUserConfiguration(ReplicaRoutingConfig.class)
+                .withPropertyValues("app.datasource.replica.urls=" + REPLICA_URL, "spring.jpa.open-in-view=true")
+                .run(context -> {
+                    Throwable failure = NestedExceptionUtils.getRootCause(context.getStartupFailure());
+                    assertTrue(failure instanceof IllegalStateException && failure.getMessage().contains("open-in-view"),
+                            String.valueOf(failure));
+                });
+    }
+
+    private void copyToReplica(String table, Long id) {
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT * FROM " + table + " WHERE id = ?", id);
+        List<String> placeholders = new ArrayList<>();
+        for (int i = 0; i < row.size(); i++) {
+            placeholders.add("?");
+        }
+        replica.update("INSERT INTO " + table + " (" + String.join(", ", row.keySet()) + ") VALUES ("
+                + String.join(", ", placeholders) + ")", row.values().toArray());
+    }
+
+    private double replicaReads() {
+        Counter counter = meterRegistry.find(MetricsConfig.DATASOURCE_ROUTES).tag("target", "replica-1").counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static int countOrders(JdbcTemplate database, Long userId) {
+        return database.queryForObject("SELECT COUNT(*) FROM orders WHERE user_id = ?", Integer.class, userId);
+    }
+}
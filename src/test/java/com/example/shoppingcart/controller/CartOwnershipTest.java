@@ -0,0 +1,88 @@
+package com.example.shoppingcart.controller;
+
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.User;
+import com.example.shoppingcart.repository.CartCodec;
+import com.example.shoppingcart.repository.CartStore;
+import com.example.shoppingcart.repository.ProductRepository;
+import com.example.shoppingcart.repository.UserRepository;
+import com.example.shoppingcart.service.CartIdResolver;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The cart cookie only identifies anonymous carts: signing in moves its cart to the user and
+// retires the id, and signing out leaves nothing in the browser that leads to the user's cart.
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CartOwnershipTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Test
+    void signInMovesTheAnonymousCartToTheUserAndSignOutForgetsTheCookie() throws Exception {
+        String name = "cart-" + UUID.randomUUID();
+        User user = new User();
+        user.setUsername(name);
+        user.setPassword(passwordEncoder.encode("secret"));
+        user.setRole("ROLE_USER");
+        user = userRepository.save(user);
+        Product product = productRepository.save(new Product(name, "P", 10, null, 100));
+
+        MvcResult added = mockMvc.perform(get("/addToCart/" + product.getId())).andReturn();
+        String setCookie = added.getResponse().getHeader(HttpHeaders.SET_COOKIE);
+        assertTrue(setCookie.contains("Secure") && setCookie.contains("HttpOnly") && setCookie.contains("SameSite=Lax"), setCookie);
+        String anonymousId = added.getResponse().getCookie(CartIdResolver.COOKIE_NAME).getValue();
+        Cookie cartCookie = new Cookie(CartIdResolver.COOKIE_NAME, anonymousId);
+
+        MvcResult signedIn = mockMvc.perform(post("/login").param("username", name).param("password", "secret")
+                        .cookie(cartCookie).with(csrf()))
+                .andExpect(status().is3xxRedirection())
+                .andReturn();
+        assertEquals(0, signedIn.getResponse().getCookie(CartIdResolver.COOKIE_NAME).getMaxAge());
+        assertNull(cartStore.load(anonymousId));
+        assertEquals(Map.of(product.getId(), 1), CartCodec.decode(cartStore.load("user-" + user.getId())));
+
+        MockHttpSession session = (MockHttpSession) signedIn.getRequest().getSession(false);
+        MvcResult signedOut = mockMvc.perform(post("/logout").session(session).cookie(cartCookie).accept(MediaType.TEXT_HTML).with(csrf()))
+                .andExpect(status().is3xxRedirection())
+                .andReturn();
+        assertEquals(0, signedOut.getResponse().getCookie(CartIdResolver.COOKIE_NAME).getMaxAge());
+        // The user's cart is still there for their next sign-in
+        assertEquals(Map.of(product.getId(), 1), CartCodec.decode(cartStore.load("user-" + user.getId())));
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.shoppingcart.controller;
+
+import com.example.shoppingcart.model.CartItem;
+import com.example.shoppingcart.model.Order;
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.User;
+import com.example.shoppingcart.model.UserPrincipal;
+import com.example.shoppingcart.repository.ProductRepository;
+import com.example.shoppingcart.repository.UserRepository;
+import com.example.shoppingcart.service.OrderService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The order history views must cost the same number of statements however many orders, lines
+// and products a page shows: rendering them may not fall back to lazy loads.
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class OrderHistoryStatementCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderService orderService;
+
+    private User customer;
+    private UserPrincipal customerPrincipal;
+    private UserPrincipal adminPrincipal;
+    private List<Product> products;
+
+    @BeforeEach
+    void setUp() {
+        String name = "history-" + UUID.randomUUID();
+        customer = new User();
+        customer.setUsername(name);
+        customer.setPassword("unused");
+        customer.setRole("ROLE_USER");
+        customer = userRepository.save(customer);
+        customerPrincipal = new UserPrincipal(customer.getId(), name, "unused",
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        User admin = userRepository.findByUsername("admin").orElseThrow();
+        adminPrincipal = new UserPrincipal(admin.getId(), "admin", "unused",
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        products = productRepository.saveAll(List.of(
+                new Product(name + " A", "A", 10, null, 1000),
+                new Product(name + " B", "B", 20, null, 1000),
+                new Product(name + " C", "C", 30, null, 1000),
+                new Product(name + " D", "D", 40, null, 1000)));
+    }
+
+    @Test
+    void myOrdersPageCostsTheSameForOneOrManyOrders() throws Exception {
+        RequestBuilder page = get("/myOrders").with(user(customerPrincipal));
+        placeOrders(2, 1);
+        long few = statements(page);
+        placeOrders(30, products.size());
+        long many = statements(page);
+
+        assertEquals(few, many, "statements for a page of 2 one-line orders vs 20 four-line orders");
+        assertTrue(many <= 2, "expected at most the page query and the cart, got " + many);
+    }
+
+    @Test
+    void adminOrdersPageCostsTheSameForOneOrManyOrders() throws Exception {
+        RequestBuilder page = get("/admin/orders").param("username", customer.getUsername()).with(user(adminPrincipal));
+        placeOrders(2, 1);
+        long few = statements(page);
+        placeOrders(30, products.size());
+        long many = statements(page);
+
+        assertEquals(few, many, "statements for a page of 2 orders vs 20 orders");
+        assertTrue(many <= 3, "expected the page query, the status counts and the cart, got " + many);
+    }
+
+    @Test
+    void orderDetailsCostTheSameForOneOrManyLines() throws Exception {
+        Order small = placeOrders(1, 1);
+        Order large = placeOrders(1, products.size());
+        long few = statements(get("/order/" + small.getId()).with(user(customerPrincipal)));
+        long many = statements(get("/order/" + large.getId()).with(user(customerPrincipal)));
+
+        assertEquals(few, many, "statements for an order of 1 line vs " + products.size() + " lines");
+        assertTrue(many <= 2, "expected the order query and the cart, got " + many);
+    }
+
+    private Order placeOrders(int orders, int lines) {
+        Order last = null;
+        for (int i = 0; i < orders; i++) {
+            List<CartItem> cart = products.subList(0, lines).stream().map(p -> new CartItem(p, 1)).toList();
+            last = orderService.createOrder(customer, cart);
+        }
+        return last;
+    }
+
+    // Statements run by the request, counted on its second run so that caches filled on the
+    // first (the signed-in user) are not counted
+    private long statements(RequestBuilder request) throws Exception {
+        mockMvc.perform(request).andExpect(status().isOk());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(request).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+}
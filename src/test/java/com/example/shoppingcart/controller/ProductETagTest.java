@@ -0,0 +1,104 @@
+package com.example.shoppingcart.controller;
+
+import com.example.shoppingcart.model.CartItem;
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.User;
+import com.example.shoppingcart.repository.ProductRepository;
+import com.example.shoppingcart.repository.UserRepository;
+import com.example.shoppingcart.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Product validators must move with every write, including the stock reservations made by
+// checkout in SQL, and never pair a new tag with a cached body of the old version
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ProductETagTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void apiTagChangesWhenCheckoutReservesStock() throws Exception {
+        Product product = productRepository.save(new Product("etag-" + UUID.randomUUID(), "Tagged", 10, null, 10));
+        String url = "/api/products/" + product.getId();
+        String before = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, before)).andExpect(status().isNotModified());
+
+        checkout(product, 2);
+
+        String after = mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, before))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stock").value(8))
+                .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(before, after);
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, after)).andExpect(status().isNotModified());
+    }
+
+    @Test
+    void productPageTagChangesWhenCheckoutReservesStock() throws Exception {
+        Product product = productRepository.save(new Product("etag-" + UUID.randomUUID(), "Tagged", 10, null, 10));
+        String url = "/product/" + product.getId();
+        String before = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        checkout(product, 3);
+
+        String after = mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, before))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(before, after);
+    }
+
+    @Test
+    void cachedProductOfAnOlderVersionIsNotServed() throws Exception {
+        Product product = productRepository.save(new Product("etag-" + UUID.randomUUID(), "Tagged", 10, null, 10));
+        String url = "/api/products/" + product.getId();
+        mockMvc.perform(get(url)).andExpect(jsonPath("$.stock").value(10));
+
+        // A writer that leaves the product cache alone
+        jdbcTemplate.update("UPDATE products SET stock = 4, version = version + 1 WHERE id = ?", product.getId());
+
+        mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stock").value(4))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"p" + product.getId() + "-" + (product.getVersion() + 1) + "\""));
+    }
+
+    private void checkout(Product product, int quantity) {
+        User user = userRepository.findByUsername("user").orElseThrow();
+        orderService.createOrder(user, List.of(new CartItem(product, quantity)));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.shoppingcart.controller;
+
+import com.example.shoppingcart.config.MetricsConfig;
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.ProductImageSize;
+import com.example.shoppingcart.repository.ProductRepository;
+import com.example.shoppingcart.service.ProductImageService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Image requests count against the images admission group, hold no database connection while
+// the original is fetched, and fall back to a redirect only for URLs that may be linked
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ProductImageControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @SpyBean
+    private ProductImageService productImageService;
+
+    @Test
+    void noConnectionIsHeldWhileTheImageIsFetched() throws Exception {
+        String url = "https://images.example.com/" + UUID.randomUUID() + ".jpg";
+        Product product = productRepository.save(new Product("Lamp", "Desk lamp", 10, url, 1));
+        AtomicInteger activeDuringFetch = new AtomicInteger(-1);
+        doAnswer(invocation -> {
+            activeDuringFetch.set(((HikariDataSource) dataSource).getHikariPoolMXBean().getActiveConnections());
+            return null;
+        }).when(productImageService).getImage(any(Product.class), eq(ProductImageSize.CARD));
+        double admitted = imagesAdmitted();
+
+        mockMvc.perform(get("/images/products/" + product.getId() + "/card"))
+                .andExpect(status().isFound())
+                .andExpect(redirectedUrl(url));
+
+        assertEquals(0, activeDuringFetch.get());
+        assertTrue(imagesAdmitted() > admitted, "image request not counted in the images group");
+    }
+
+    @Test
+    void internalImageUrlsAreNotRedirectedTo() throws Exception {
+        Product product = productRepository.save(new Product("Lamp", "Desk lamp", 10,
+                "http://169.254.169.254/latest/meta-data/" + UUID.randomUUID(), 1));
+
+        mockMvc.perform(get("/images/products/" + product.getId() + "/card"))
+                .andExpect(status().isNotFound());
+    }
+
+    private double imagesAdmitted() {
+        Counter counter = meterRegistry.find(MetricsConfig.ADMISSION).tag("group", "images").tag("outcome", "admitted").counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
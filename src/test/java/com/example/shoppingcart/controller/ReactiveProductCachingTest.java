@@ -0,0 +1,61 @@
+package com.example.shoppingcart.controller;
+
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The asynchronous product endpoint must revalidate like /api/products/{id}, despite Spring
+// Security writing no-cache headers when the handler returns
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReactiveProductCachingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void productCarriesTheSameValidatorsAsTheMvcApi() throws Exception {
+        Product product = productRepository.save(new Product("reactive-" + UUID.randomUUID(), "Async", 10, null, 5));
+        String etag = mockMvc.perform(get("/api/products/" + product.getId()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        MvcResult started = mockMvc.perform(get("/api/reactive/products/" + product.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(product.getId()))
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, CatalogETags.API_CACHE_CONTROL.getHeaderValue()));
+
+        mockMvc.perform(get("/api/reactive/products/" + product.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, CatalogETags.API_CACHE_CONTROL.getHeaderValue()));
+    }
+
+    @Test
+    void missingProductIsNotFound() throws Exception {
+        mockMvc.perform(get("/api/reactive/products/" + Long.MAX_VALUE)).andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.shoppingcart.controller;
+
+import com.example.shoppingcart.config.MetricsConfig;
+import com.example.shoppingcart.model.CartItem;
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.User;
+import com.example.shoppingcart.repository.ProductRepository;
+import com.example.shoppingcart.repository.UserRepository;
+import com.example.shoppingcart.service.OrderService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Rendered pages follow the data they show: a checkout that sells a product out shows on the
+// cached home and product pages at once, not when their entries expire. Pages are kept per locale.
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RenderedPageCacheTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void aSellOutShowsOnCachedPagesAtOnce() throws Exception {
+        String name = "sellout-" + UUID.randomUUID();
+        Product product = productRepository.save(new Product(name, "P", 10, "https://images.example.com/lamp.jpg", 1));
+        String home = "/?name=" + name;
+        String details = "/product/" + product.getId();
+
+        assertTrue(page(home).contains("v=" + product.getVersion()));
+        assertTrue(page(details).contains("1 in stock"));
+        double hits = pageCache("hit");
+        page(home);
+        page(details);
+        assertEquals(hits + 2, pageCache("hit"));
+
+        User customer = new User();
+        customer.setUsername(name);
+        customer.setPassword("unused");
+        customer.setRole("ROLE_USER");
+        orderService.createOrder(userRepository.save(customer), List.of(new CartItem(product, 1)));
+
+        String homeAfter = page(home);
+        assertTrue(homeAfter.contains("v=" + (product.getVersion() + 1)), "home page still lists the old version");
+        assertFalse(homeAfter.contains("v=" + product.getVersion() + "\""));
+        String detailsAfter = page(details);
+        assertTrue(detailsAfter.contains("Out of stock"), "product page still shows stock");
+        assertFalse(detailsAfter.contains("1 in stock"));
+    }
+
+    @Test
+    void pagesAreCachedPerLocale() throws Exception {
+        Product product = productRepository.save(new Product("locale-" + UUID.randomUUID(), "P", 10, null, 5));
+        String details = "/product/" + product.getId();
+
+        double misses = pageCache("miss");
+        page(details, Locale.ENGLISH);
+        page(details, Locale.FRENCH);
+        assertEquals(misses + 2, pageCache("miss"));
+
+        double hits = pageCache("hit");
+        page(details, Locale.FRENCH);
+        assertEquals(hits + 1, pageCache("hit"));
+    }
+
+    private String page(String path) throws Exception {
+        return page(path, Locale.ENGLISH);
+    }
+
+    private String page(String path, Locale locale) throws Exception {
+        return mockMvc.perform(get(path).header(HttpHeaders.ACCEPT_LANGUAGE, locale.toLanguageTag()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private double pageCache(String result) {
+        return meterRegistry.counter(MetricsConfig.PAGE_CACHE, "result", result).count();
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.shoppingcart.controller;
+
+import com.example.shoppingcart.config.BoundedPasswordEncoder;
+import com.example.shoppingcart.model.UserPrincipal;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestBuilders.formLogin;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrlPattern;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Who may reach the endpoints that are not part of the shop pages
+@SpringBootTest
+@AutoConfigureMockMvc
+// Tests switch metrics export off by default; the scrape endpoint must exist to be secured
+@AutoConfigureObservability
+@ActiveProfiles("test")
+class SecurityEndpointsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Test
+    void prometheusScrapeNeedsAnAdmin() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/prometheus").with(httpBasic("user", "user123"))).andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/prometheus").with(httpBasic("admin", "admin123")))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds")));
+    }
+
+    @Test
+    void healthIsPublic() throws Exception {
+        mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+    }
+
+    @Test
+    void basicAuthIsOnlyAcceptedOnApiPaths() throws Exception {
+        mockMvc.perform(get("/admin/api/analytics").with(httpBasic("admin", "admin123"))).andExpect(status().isOk());
+        mockMvc.perform(get("/admin/orders").with(httpBasic("admin", "admin123")))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrlPattern("**/login"));
+    }
+
+    @Test
+    void adminApiWritesNeedACsrfTokenUnlessSentWithBasicCredentials() throws Exception {
+        UserPrincipal admin = new UserPrincipal(1L, "admin", "unused", List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        mockMvc.perform(post("/admin/api/outbox/requeue").with(user(admin))).andExpect(status().isForbidden());
+        mockMvc.perform(post("/admin/api/outbox/requeue").with(user(admin)).with(csrf())).andExpect(status().isOk());
+        mockMvc.perform(post("/admin/api/outbox/requeue").with(httpBasic("admin", "admin123"))).andExpect(status().isOk());
+    }
+
+    @Test
+    void loginsBeyondThePasswordPoolGet503() throws Exception {
+        ThreadPoolExecutor passwordVerificationExecutor = ((BoundedPasswordEncoder) passwordEncoder).getExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // Every verification thread busy, then every queue slot taken
+            int threads = passwordVerificationExecutor.getMaximumPoolSize();
+            for (int i = 0; i < threads; i++) {
+                passwordVerificationExecutor.execute(() -> awaitQuietly(release));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (passwordVerificationExecutor.getActiveCount() < threads && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            int queueSlots = passwordVerificationExecutor.getQueue().remainingCapacity();
+            for (int i = 0; i < queueSlots; i++) {
+                passwordVerificationExecutor.execute(() -> awaitQuietly(release));
+            }
+
+            mockMvc.perform(formLogin().user("user").password("user123"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().exists("Retry-After"));
+            mockMvc.perform(formLogin().user("no-such-user").password("whatever"))
+                    .andExpect(status().isServiceUnavailable());
+            mockMvc.perform(get("/admin/api/analytics").with(httpBasic("admin", "admin123")))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().exists("Retry-After"));
+            mockMvc.perform(get("/admin/api/analytics").with(httpBasic("no-such-user", "whatever")))
+                    .andExpect(status().isServiceUnavailable());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    // The verification pool is not an Executor bean, which would replace Boot's task executor
+    @Test
+    void asyncWorkKeepsTheApplicationTaskExecutor() {
+        assertTrue(applicationContext.containsBean("applicationTaskExecutor"));
+        assertEquals(0, applicationContext.getBeanNamesForType(ThreadPoolExecutor.class).length);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.shoppingcart.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Shared carts expire after app.cart.ttl without access, like the in-memory store's
+@SpringBootTest(properties = {"app.cart.store=jdbc", "app.cart.ttl=1d"})
+@ActiveProfiles("test")
+class JdbcCartStoreExpiryTest {
+
+    @Autowired
+    private JdbcCartStore cartStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void idleCartsExpireAndArePurged() {
+        String idle = UUID.randomUUID().toString();
+        String active = UUID.randomUUID().toString();
+        byte[] data = {1, 2, 3};
+        cartStore.save(idle, data);
+        cartStore.save(active, data);
+        jdbcTemplate.update("UPDATE carts SET updated_at = ? WHERE cart_id = ?",
+                System.currentTimeMillis() - Duration.ofDays(2).toMillis(), idle);
+
+        assertNull(cartStore.load(idle));
+        assertEquals(1, cartStore.purgeExpired());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM carts WHERE cart_id = ?", Integer.class, idle));
+        assertArrayEquals(data, cartStore.load(active));
+    }
+
+    @Test
+    void loadingAnOldCartKeepsItAlive() {
+        String cartId = UUID.randomUUID().toString();
+        cartStore.save(cartId, new byte[]{1});
+        long old = System.currentTimeMillis() - Duration.ofHours(12).toMillis();
+        jdbcTemplate.update("UPDATE carts SET updated_at = ? WHERE cart_id = ?", old, cartId);
+
+        cartStore.load(cartId);
+
+        long updatedAt = jdbcTemplate.queryForObject("SELECT updated_at FROM carts WHERE cart_id = ?", Long.class, cartId);
+        assertEquals(true, updatedAt > old);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.shoppingcart.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A database created by ddl-auto=update before the schema was versioned is baselined at version
+// 0; V1 skips its existing tables, so the indexes on them must come from later migrations.
+class LegacySchemaMigrationTest {
+
+    @Test
+    void baselinedDatabaseGetsTheListingIndexes() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:legacy-" + UUID.randomUUID()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE users (id BIGINT NOT NULL AUTO_INCREMENT, username VARCHAR(255) NOT NULL,"
+                + " password VARCHAR(255) NOT NULL, role VARCHAR(255) NOT NULL, PRIMARY KEY (id))");
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT NOT NULL AUTO_INCREMENT, name VARCHAR(255),"
+                + " description VARCHAR(255), price FLOAT(53) NOT NULL, image_url VARCHAR(255), PRIMARY KEY (id))");
+        jdbcTemplate.execute("CREATE TABLE orders (id BIGINT NOT NULL AUTO_INCREMENT, user_id BIGINT NOT NULL,"
+                + " order_date DATETIME(6), status VARCHAR(255), total_amount FLOAT(53) NOT NULL, PRIMARY KEY (id),"
+                + " CONSTRAINT fk_orders_user FOREIGN KEY (user_id) REFERENCES users (id))");
+
+        Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .javaMigrations(new V3__ProductStockAndVersion(), new V4__ProductListingIndexes(), new V5__OrderListingIndexes())
+                .load()
+                .migrate();
+
+        Set<String> indexes = indexes(dataSource, "products");
+        assertTrue(indexes.containsAll(List.of("idx_products_price_id", "idx_products_name")), indexes.toString());
+        indexes = indexes(dataSource, "orders");
+        assertTrue(indexes.containsAll(List.of("idx_orders_status_date", "idx_orders_user_date", "idx_orders_date")),
+                indexes.toString());
+    }
+
+    private static Set<String> indexes(DriverManagerDataSource dataSource, String table) throws Exception {
+        Set<String> names = new HashSet<>();
+        try (Connection connection = dataSource.getConnection();
+             ResultSet indexes = connection.getMetaData().getIndexInfo(connection.getCatalog(), null, table, false, true)) {
+            while (indexes.next()) {
+                names.add(indexes.getString("INDEX_NAME").toLowerCase());
+            }
+        }
+        return names;
+    }
+}
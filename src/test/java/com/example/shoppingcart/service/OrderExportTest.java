@@ -0,0 +1,107 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.model.CartItem;
+import com.example.shoppingcart.model.ExportFormat;
+import com.example.shoppingcart.model.Order;
+import com.example.shoppingcart.model.OrderQuery;
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.User;
+import com.example.shoppingcart.repository.ProductRepository;
+import com.example.shoppingcart.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The export streams the orders of the query oldest first, each order's rows together and its
+// lines in id order, as one CSV row per line or one NDJSON object per order
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderExportTest {
+
+    @Autowired
+    private OrderExportService orderExportService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private User customer;
+    private Order first;
+    private Order second;
+
+    @BeforeEach
+    void setUp() {
+        String name = "export-" + UUID.randomUUID();
+        customer = new User();
+        customer.setUsername(name);
+        customer.setPassword("unused");
+        customer.setRole("ROLE_USER");
+        customer = userRepository.save(customer);
+        Product lamp = productRepository.save(new Product(name + "-lamp", "P", 10, null, 10));
+        Product desk = productRepository.save(new Product(name + "-desk", "P", 120, null, 10));
+        // Lines added in the reverse of product id order
+        first = orderService.createOrder(customer, List.of(new CartItem(desk, 1), new CartItem(lamp, 2)));
+        second = orderService.createOrder(customer, List.of(new CartItem(lamp, 1)));
+    }
+
+    @Test
+    void ndjsonHasOneObjectPerOrderWithItsLinesInOrder() throws Exception {
+        String[] rows = export(ExportFormat.NDJSON).split("\n");
+
+        assertEquals(2, rows.length);
+        JsonNode order = objectMapper.readTree(rows[0]);
+        assertEquals(first.getId(), order.get("orderId").asLong());
+        assertEquals(customer.getUsername(), order.get("username").asText());
+        assertEquals(140, order.get("totalAmount").asDouble());
+        assertEquals(2, order.get("items").size());
+        assertEquals(customer.getUsername() + "-desk", order.get("items").get(0).get("productName").asText());
+        assertTrue(order.get("items").get(0).get("itemId").asLong() < order.get("items").get(1).get("itemId").asLong());
+        assertEquals(second.getId(), objectMapper.readTree(rows[1]).get("orderId").asLong());
+    }
+
+    @Test
+    void csvHasOneRowPerLine() throws Exception {
+        String[] rows = export(ExportFormat.CSV).split("\n");
+
+        assertEquals(4, rows.length);
+        assertTrue(rows[0].startsWith("orderId,orderDate,status,username,totalAmount,itemId"), rows[0]);
+        List<Long> orderIds = new ArrayList<>();
+        List<Long> itemIds = new ArrayList<>();
+        for (int i = 1; i < rows.length; i++) {
+            String[] columns = rows[i].split(",");
+            orderIds.add(Long.parseLong(columns[0]));
+            itemIds.add(Long.parseLong(columns[5]));
+        }
+        assertEquals(List.of(first.getId(), first.getId(), second.getId()), orderIds);
+        assertTrue(itemIds.get(0) < itemIds.get(1), "lines of an order are not in id order: " + itemIds);
+    }
+
+    private String export(ExportFormat format) {
+        OrderQuery query = new OrderQuery();
+        query.setUsername(customer.getUsername());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        orderExportService.exportOrders(query, format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
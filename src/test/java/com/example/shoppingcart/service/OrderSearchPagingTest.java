@@ -0,0 +1,83 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.model.CartItem;
+import com.example.shoppingcart.model.Order;
+import com.example.shoppingcart.model.OrderPage;
+import com.example.shoppingcart.model.OrderQuery;
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.User;
+import com.example.shoppingcart.repository.ProductRepository;
+import com.example.shoppingcart.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Walking the admin order search with its keyset cursor must visit every matching order exactly
+// once, newest first, including orders placed in the same instant.
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderSearchPagingTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void cursorVisitsEveryOrderOnceNewestFirst() {
+        String name = "paging-" + UUID.randomUUID();
+        User customer = new User();
+        customer.setUsername(name);
+        customer.setPassword("unused");
+        customer.setRole("ROLE_USER");
+        customer = userRepository.save(customer);
+        Product product = productRepository.save(new Product(name, "P", 10, null, 1000));
+
+        List<Long> placed = new ArrayList<>();
+        for (int i = 0; i < 45; i++) {
+            placed.add(orderService.createOrder(customer, List.of(new CartItem(product, 1))).getId());
+        }
+        // Half the orders share one timestamp, so pages must break ties on id
+        Timestamp same = Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 12, 0));
+        jdbcTemplate.update("UPDATE orders SET order_date = ? WHERE user_id = ? AND id <= ?",
+                same, customer.getId(), placed.get(22));
+        jdbcTemplate.update("UPDATE orders SET order_date = ? WHERE user_id = ? AND id > ?",
+                Timestamp.valueOf(LocalDateTime.of(2024, 1, 2, 12, 0)), customer.getId(), placed.get(22));
+
+        OrderQuery query = new OrderQuery();
+        query.setUsername(name);
+        List<Long> seen = new ArrayList<>();
+        int pages = 0;
+        OrderPage page;
+        do {
+            page = orderService.searchOrders(query);
+            page.getItems().stream().map(Order::getId).forEach(seen::add);
+            query.setBeforeDate(page.getNextBeforeDate());
+            query.setBeforeId(page.getNextBeforeId());
+            pages++;
+        } while (page.isHasNext());
+
+        List<Long> expected = new ArrayList<>(placed);
+        expected.sort(Comparator.reverseOrder());
+        assertEquals(expected, seen);
+        assertEquals(3, pages);
+    }
+}
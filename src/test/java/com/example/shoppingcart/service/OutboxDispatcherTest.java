@@ -0,0 +1,199 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.model.OutboxEvent;
+import com.example.shoppingcart.repository.OutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A due row is claimed by one dispatcher at a time and again once its lease runs out. A failing
+// handler is retried with a backoff that doubles up to max-retry-backoff, and after max-attempts
+// the row is parked as FAILED until it is requeued. The scheduled poll is pushed out of the way;
+// the test drives dispatchBatch itself.
+@SpringBootTest(properties = {
+        "app.outbox.dispatcher.enabled=true",
+        "app.outbox.poll-interval-ms=3600000",
+        "app.outbox.max-attempts=3",
+        "app.outbox.retry-backoff=10s",
+        "app.outbox.max-retry-backoff=15s",
+        "app.outbox.lease=1m"})
+@ActiveProfiles("test")
+class OutboxDispatcherTest {
+
+    private static final String EVENT = "test.event";
+    private static final String HANDLER = "test-handler";
+    private static final long LEASE_MS = 60_000;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private FlakyHandler handler;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM outbox_events");
+        handler.failures.set(0);
+        handler.delivered.clear();
+    }
+
+    @Test
+    void aDueRowIsClaimedOnceUntilItsLeaseRunsOut() throws Exception {
+        int rows = 50;
+        for (int i = 0; i < rows; i++) {
+            outboxRepository.insert(EVENT, i, "{}", List.of(HANDLER));
+        }
+        long now = System.currentTimeMillis();
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Callable<List<OutboxEvent>>> claims = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            claims.add(() -> outboxRepository.claimDue(now, now + LEASE_MS, rows));
+        }
+        Set<Long> claimed = new HashSet<>();
+        int total = 0;
+        try {
+            for (Future<List<OutboxEvent>> claim : pool.invokeAll(claims)) {
+                for (OutboxEvent event : claim.get()) {
+                    claimed.add(event.getId());
+                    assertEquals(1, event.getAttempts());
+                    total++;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(rows, total, "a row was claimed twice or not at all");
+        assertEquals(rows, claimed.size());
+
+        assertTrue(outboxRepository.claimDue(now + LEASE_MS - 1, now + 2 * LEASE_MS, rows).isEmpty());
+        List<OutboxEvent> reclaimed = outboxRepository.claimDue(now + LEASE_MS, now + 2 * LEASE_MS, rows);
+        assertEquals(rows, reclaimed.size());
+        assertEquals(2, reclaimed.get(0).getAttempts());
+    }
+
+    @Test
+    void failuresAreRetriedWithDoublingBackoff() {
+        outboxRepository.insert(EVENT, 1, "{}", List.of(HANDLER));
+        handler.failures.set(2);
+
+        long before = System.currentTimeMillis();
+        assertEquals(1, outboxDispatcher.dispatchBatch());
+        Map<String, Object> row = row();
+        assertEquals(OutboxRepository.PENDING, row.get("status"));
+        assertEquals(1, ((Number) row.get("attempts")).intValue());
+        assertTrue(((String) row.get("last_error")).contains("handler down"), String.valueOf(row.get("last_error")));
+        assertBackoff(before, 10_000, row);
+
+        // Not due yet
+        assertEquals(0, outboxDispatcher.dispatchBatch());
+
+        makeDue();
+        before = System.currentTimeMillis();
+        assertEquals(1, outboxDispatcher.dispatchBatch());
+        // 20 s doubled, capped at max-retry-backoff
+        assertBackoff(before, 15_000, row());
+
+        makeDue();
+        assertEquals(1, outboxDispatcher.dispatchBatch());
+        assertEquals(List.of(1L), handler.delivered);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events", Integer.class));
+    }
+
+    @Test
+    void aRowIsParkedAsFailedAfterMaxAttempts() {
+        outboxRepository.insert(EVENT, 1, "{}", List.of(HANDLER));
+        handler.failures.set(Integer.MAX_VALUE);
+
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            makeDue();
+            assertEquals(1, outboxDispatcher.dispatchBatch());
+        }
+        Map<String, Object> row = row();
+        assertEquals(OutboxRepository.FAILED, row.get("status"));
+        assertEquals(3, ((Number) row.get("attempts")).intValue());
+        makeDue();
+        assertEquals(0, outboxDispatcher.dispatchBatch());
+        assertEquals(1L, outboxService.getQueueSizes().get(OutboxRepository.FAILED));
+
+        handler.failures.set(0);
+        assertEquals(1, outboxService.requeueFailed());
+        assertEquals(1, outboxDispatcher.dispatchBatch());
+        assertEquals(List.of(1L), handler.delivered);
+        assertEquals(0L, outboxService.getQueueSizes().get(OutboxRepository.FAILED));
+    }
+
+    private Map<String, Object> row() {
+        return jdbcTemplate.queryForMap("SELECT status, attempts, available_at, last_error FROM outbox_events");
+    }
+
+    private void makeDue() {
+        jdbcTemplate.update("UPDATE outbox_events SET available_at = ?", System.currentTimeMillis());
+    }
+
+    private static void assertBackoff(long before, long backoffMs, Map<String, Object> row) {
+        long availableAt = ((Number) row.get("available_at")).longValue();
+        assertTrue(availableAt >= before + backoffMs && availableAt <= System.currentTimeMillis() + backoffMs,
+                "available_at " + availableAt + " is not " + backoffMs + " ms after the attempt at " + before);
+    }
+
+    @TestConfiguration
+    static class HandlerConfig {
+        @Bean
+        FlakyHandler flakyHandler() {
+            return new FlakyHandler();
+        }
+    }
+
+    // Fails while failures is above zero, then records what it delivers
+    static class FlakyHandler implements OutboxHandler {
+        final AtomicInteger failures = new AtomicInteger();
+        final List<Long> delivered = new ArrayList<>();
+
+        @Override
+        public String getName() {
+            return HANDLER;
+        }
+
+        @Override
+        public boolean handles(String eventType) {
+            return EVENT.equals(eventType);
+        }
+
+        @Override
+        public void handle(OutboxEvent event) {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("handler down");
+            }
+            delivered.add(event.getAggregateId());
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.model.ExportFormat;
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.ProductImportResult;
+import com.example.shoppingcart.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Imports are written in batches of app.products.import.batch-size, each committed on its own:
+// rejected rows are reported by their record number whichever batch they fall in, and malformed
+// input stops the import with the batches before it kept. An exported row can be edited and
+// imported once; importing it again is rejected, its version being stale.
+@SpringBootTest(properties = "app.products.import.batch-size=3")
+@ActiveProfiles("test")
+class ProductBulkServiceTest {
+
+    @Autowired
+    private ProductBulkService productBulkService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void rejectedRowsAreReportedByRecordAcrossBatches() {
+        String name = "bulk-" + UUID.randomUUID();
+        Product existing = productRepository.save(new Product(name + "-existing", "P", 10, null, 5));
+        String input = row(name + "-1", null, null)
+                + "{\"name\":\"" + name + "-2\"}\n"
+                + row(name + "-3", null, null)
+                + row(name + "-4", null, null)
+                + row(name + "-5", existing.getId(), existing.getVersion() + 1)
+                + row(name + "-6", null, null)
+                + row(name + "-7", existing.getId(), null)
+                + row(name + "-8", null, null);
+
+        ProductImportResult result = productBulkService.importProducts(stream(input), ExportFormat.NDJSON);
+
+        assertTrue(result.isCompleted());
+        assertEquals(8, result.getReceived());
+        assertEquals(5, result.getImported());
+        assertEquals(3, result.getRejected());
+        assertEquals(3, result.getErrors().size());
+        assertTrue(result.getErrors().get(0).startsWith("record 2: "), result.getErrors().toString());
+        assertTrue(result.getErrors().get(1).startsWith("record 5: product " + existing.getId() + " is no longer at version"),
+                result.getErrors().toString());
+        assertTrue(result.getErrors().get(2).startsWith("record 7: product " + existing.getId() + " already exists"),
+                result.getErrors().toString());
+        assertEquals(5, countNamed(name + "-_"));
+        assertEquals(name + "-existing", jdbcTemplate.queryForObject(
+                "SELECT name FROM products WHERE id = ?", String.class, existing.getId()));
+    }
+
+    @Test
+    void malformedInputKeepsTheBatchesBeforeIt() {
+        String name = "bulk-" + UUID.randomUUID();
+        String input = row(name + "-1", null, null) + row(name + "-2", null, null) + row(name + "-3", null, null)
+                + row(name + "-4", null, null) + "{\"name\": oops}\n";
+
+        ProductImportResult result = productBulkService.importProducts(stream(input), ExportFormat.NDJSON);
+
+        assertFalse(result.isCompleted());
+        assertTrue(result.getFailure().startsWith("Malformed"), result.getFailure());
+        assertEquals(3, result.getImported());
+        assertEquals(3, countNamed(name + "-_"));
+    }
+
+    @Test
+    void anExportedRowImportsOnce() {
+        Product product = productRepository.save(new Product("bulk-" + UUID.randomUUID(), "P", 10, null, 5));
+        String header = null;
+        String exported = null;
+        for (String line : export(ExportFormat.CSV).split("\n")) {
+            if (header == null) {
+                header = line;
+            } else if (line.contains(product.getName())) {
+                exported = line;
+            }
+        }
+        assertEquals("id,name,description,price,imageUrl,stock,version", header);
+        assertEquals(product.getId() + ",\"" + product.getName() + "\",P,10.0,,5," + product.getVersion(), exported);
+
+        String edited = header + "\n" + exported.replace(",10.0,", ",12.5,") + "\n";
+        ProductImportResult first = productBulkService.importProducts(stream(edited), ExportFormat.CSV);
+        ProductImportResult second = productBulkService.importProducts(stream(edited), ExportFormat.CSV);
+
+        assertEquals(1, first.getImported());
+        assertEquals(0, second.getImported());
+        assertEquals(1, second.getRejected());
+        assertEquals(12.5, jdbcTemplate.queryForObject("SELECT price FROM products WHERE id = ?", Double.class, product.getId()));
+        assertEquals(product.getVersion() + 1, jdbcTemplate.queryForObject(
+                "SELECT version FROM products WHERE id = ?", Long.class, product.getId()));
+    }
+
+    @Test
+    void ndjsonExportHasOneProductPerLine() {
+        Product product = productRepository.save(new Product("bulk-" + UUID.randomUUID(), "P", 10, null, null));
+        List<String> lines = List.of(export(ExportFormat.NDJSON).split("\n"));
+
+        assertEquals(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products", Integer.class), lines.size());
+        String line = lines.stream().filter(l -> l.contains(product.getName())).findFirst().orElseThrow();
+        assertTrue(line.startsWith("{\"id\":" + product.getId() + ","), line);
+        assertNull(productRepository.findById(product.getId()).orElseThrow().getStock());
+        assertTrue(line.contains("\"stock\":null"), line);
+    }
+
+    private static String row(String name, Long id, Long version) {
+        return "{" + (id != null ? "\"id\":" + id + "," : "") + (version != null ? "\"version\":" + version + "," : "")
+                + "\"name\":\"" + name + "\",\"price\":10,\"stock\":1}\n";
+    }
+
+    private String export(ExportFormat format) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        productBulkService.exportProducts(out, format);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private int countNamed(String pattern) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products WHERE name LIKE ?", Integer.class, pattern);
+    }
+
+    private static ByteArrayInputStream stream(String input) {
+        return new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+    }
+}
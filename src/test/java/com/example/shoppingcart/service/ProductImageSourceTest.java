@@ -0,0 +1,120 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.ProductImageSize;
+import com.example.shoppingcart.repository.ProductImageStore;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+// Image URLs come from product data: the fetch must not be steered to internal addresses, either
+// directly or through a redirect, and pages only link URLs that pass the same rules
+class ProductImageSourceTest {
+
+    private final List<HttpServer> servers = new ArrayList<>();
+
+    @AfterEach
+    void stopServers() {
+        servers.forEach(server -> server.stop(0));
+    }
+
+    @Test
+    void loopbackAddressesAreNotFetched() throws IOException {
+        AtomicInteger hits = new AtomicInteger();
+        HttpServer internal = server(hits, null);
+        ProductImageService service = service(List.of(), false);
+
+        assertNull(service.getImage(product("http://127.0.0.1:" + port(internal) + "/a.png"), ProductImageSize.CARD));
+        assertNull(service.getImage(product("http://localhost:" + port(internal) + "/b.png"), ProductImageSize.CARD));
+        assertEquals(0, hits.get());
+    }
+
+    @Test
+    void everyRedirectHopIsChecked() throws IOException {
+        AtomicInteger internalHits = new AtomicInteger();
+        HttpServer internal = server(internalHits, null);
+        AtomicInteger allowedHits = new AtomicInteger();
+        HttpServer allowed = server(allowedHits, "http://localhost:" + port(internal) + "/secret");
+        // Private addresses allowed so that the test servers can be reached; the redirect leaves the allowed hosts
+        ProductImageService service = service(List.of("127.0.0.1"), true);
+
+        assertNull(service.getImage(product("http://127.0.0.1:" + port(allowed) + "/a.png"), ProductImageSize.CARD));
+        assertEquals(1, allowedHits.get());
+        assertEquals(0, internalHits.get());
+    }
+
+    @Test
+    void onlyPublicHttpUrlsOnAllowedHostsAreLinked() {
+        ProductImageService anyHost = service(List.of(), false);
+        assertTrue(anyHost.isLinkable("https://images.example.com/a.jpg"));
+        assertFalse(anyHost.isLinkable("javascript:alert(1)"));
+        assertFalse(anyHost.isLinkable("ftp://images.example.com/a.jpg"));
+        assertFalse(anyHost.isLinkable("http://169.254.169.254/latest/meta-data/"));
+        assertFalse(anyHost.isLinkable("http://10.0.0.5/a.jpg"));
+        assertFalse(anyHost.isLinkable("http://[::1]/a.jpg"));
+        assertFalse(anyHost.isLinkable("not a url"));
+
+        ProductImageService allowList = service(List.of("example.com"), false);
+        assertTrue(allowList.isLinkable("https://cdn.example.com/a.jpg"));
+        assertTrue(allowList.isLinkable("https://EXAMPLE.com/a.jpg"));
+        assertFalse(allowList.isLinkable("https://example.com.evil.test/a.jpg"));
+        assertFalse(allowList.isLinkable("https://notexample.com/a.jpg"));
+    }
+
+    private static ProductImageService service(List<String> allowedHosts, boolean allowPrivateAddresses) {
+        ProductImageService service = new ProductImageService();
+        ReflectionTestUtils.setField(service, "productImageStore", mock(ProductImageStore.class));
+        ReflectionTestUtils.setField(service, "fetchTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(service, "maxSourceSize", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(service, "maxSourcePixels", 1_000_000L);
+        ReflectionTestUtils.setField(service, "quality", 0.8f);
+        ReflectionTestUtils.setField(service, "failureTtl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(service, "allowedHosts", allowedHosts);
+        ReflectionTestUtils.setField(service, "allowPrivateAddresses", allowPrivateAddresses);
+        service.init();
+        return service;
+    }
+
+    // Answers 404, or redirects to the given location
+    private HttpServer server(AtomicInteger hits, String redirectTo) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            hits.incrementAndGet();
+            if (redirectTo != null) {
+                exchange.getResponseHeaders().add("Location", redirectTo);
+                exchange.sendResponseHeaders(302, -1);
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+            exchange.close();
+        });
+        server.start();
+        servers.add(server);
+        return server;
+    }
+
+    private static int port(HttpServer server) {
+        return server.getAddress().getPort();
+    }
+
+    private static Product product(String imageUrl) {
+        Product product = new Product("Lamp", "Desk lamp", 10, imageUrl, 1);
+        product.setId(1L);
+        return product;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Saves and deletes that land while a rebuild is reading the catalog must survive the swap
+class ProductSearchIndexRebuildTest {
+
+    @Test
+    void changesDuringARebuildAreKept() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        ProductRepository repository = mock(ProductRepository.class);
+        ReflectionTestUtils.setField(index, "productRepository", repository);
+
+        Product lamp = product(1L, "Desk lamp");
+        Product chair = product(2L, "Office chair");
+        index.index(lamp);
+        index.index(chair);
+
+        // The rebuild reads the catalog as it was; meanwhile a product is added, one renamed
+        // and one deleted
+        when(repository.findPageOrderById(anyLong(), anyDouble(), anyDouble(), anyString(), any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    index.index(product(3L, "Standing desk"));
+                    index.index(product(1L, "Reading lamp"));
+                    index.remove(2L);
+                    return List.of(product(1L, "Desk lamp"), product(2L, "Office chair"));
+                });
+        index.rebuild();
+
+        assertEquals(List.of(3L), index.search("standing", 10).getProductIds());
+        assertEquals(List.of(1L), index.search("reading", 10).getProductIds());
+        assertEquals(List.of(3L), index.search("desk", 10).getProductIds());
+        assertEquals(0, index.search("chair", 10).getTotal());
+    }
+
+    @Test
+    void changesAfterARebuildAreNotReplayedIntoTheNext() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        ProductRepository repository = mock(ProductRepository.class);
+        ReflectionTestUtils.setField(index, "productRepository", repository);
+        when(repository.findPageOrderById(anyLong(), anyDouble(), anyDouble(), anyString(), any(Pageable.class)))
+                .thenReturn(List.of(product(1L, "Desk lamp")));
+        index.rebuild();
+
+        index.remove(1L);
+        index.rebuild();
+
+        assertEquals(List.of(1L), index.search("lamp", 10).getProductIds());
+    }
+
+    private static Product product(Long id, String name) {
+        Product product = new Product(name, name, 10, null);
+        product.setId(id);
+        return product;
+    }
+}
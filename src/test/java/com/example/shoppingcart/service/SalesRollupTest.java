@@ -0,0 +1,120 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.model.CartItem;
+import com.example.shoppingcart.model.Order;
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.User;
+import com.example.shoppingcart.repository.ProductRepository;
+import com.example.shoppingcart.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The rollups add up under concurrent checkouts, including the first sales of a product when
+// every checkout races to create its row, and a cancellation takes an order back out of revenue.
+@SpringBootTest
+@ActiveProfiles("test")
+class SalesRollupTest {
+
+    private static final int THREADS = 16;
+    private static final int CHECKOUTS = 64;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User customer;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        String name = "rollup-" + UUID.randomUUID();
+        customer = new User();
+        customer.setUsername(name);
+        customer.setPassword("unused");
+        customer.setRole("ROLE_USER");
+        customer = userRepository.save(customer);
+        product = productRepository.save(new Product(name, "P", 2.5, null, CHECKOUTS));
+    }
+
+    @Test
+    void concurrentFirstSalesAreAllCounted() throws Exception {
+        long ordersToday = ordersToday();
+        long pending = ordersWithStatus("PENDING");
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Callable<Order>> checkouts = new ArrayList<>();
+        for (int i = 0; i < CHECKOUTS; i++) {
+            checkouts.add(() -> orderService.createOrder(customer, List.of(new CartItem(product, 1))));
+        }
+        try {
+            for (Future<Order> checkout : pool.invokeAll(checkouts)) {
+                checkout.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        Map<String, Object> sales = productSales();
+        assertEquals((long) CHECKOUTS, ((Number) sales.get("orders")).longValue());
+        assertEquals((long) CHECKOUTS, ((Number) sales.get("units")).longValue());
+        assertEquals(0, new BigDecimal("160.00").compareTo((BigDecimal) sales.get("revenue")));
+        assertEquals(ordersToday + CHECKOUTS, ordersToday());
+        assertEquals(pending + CHECKOUTS, ordersWithStatus("PENDING"));
+    }
+
+    @Test
+    void cancellingAnOrderTakesItOutOfRevenue() {
+        long pending = ordersWithStatus("PENDING");
+        long cancelled = ordersWithStatus(SalesAnalyticsService.CANCELLED);
+        Order order = orderService.createOrder(customer, List.of(new CartItem(product, 3)));
+        assertEquals(0, new BigDecimal("7.50").compareTo((BigDecimal) productSales().get("revenue")));
+
+        orderService.updateOrderStatus(order.getId(), SalesAnalyticsService.CANCELLED);
+
+        Map<String, Object> sales = productSales();
+        assertEquals(0L, ((Number) sales.get("orders")).longValue());
+        assertEquals(0L, ((Number) sales.get("units")).longValue());
+        assertEquals(0, BigDecimal.ZERO.compareTo((BigDecimal) sales.get("revenue")));
+        assertEquals(pending, ordersWithStatus("PENDING"));
+        assertEquals(cancelled + 1, ordersWithStatus(SalesAnalyticsService.CANCELLED));
+    }
+
+    private Map<String, Object> productSales() {
+        return jdbcTemplate.queryForMap("SELECT orders, units, revenue FROM sales_by_product WHERE product_id = ?",
+                product.getId());
+    }
+
+    private long ordersToday() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(orders), 0) FROM sales_daily WHERE sale_date = CURRENT_DATE",
+                Long.class);
+    }
+
+    private long ordersWithStatus(String status) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(orders), 0) FROM sales_by_status WHERE status = ?",
+                Long.class, status);
+    }
+}
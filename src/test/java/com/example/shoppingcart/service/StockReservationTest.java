@@ -0,0 +1,193 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.exception.ConcurrentUpdateException;
+import com.example.shoppingcart.exception.InsufficientStockException;
+import com.example.shoppingcart.exception.PriceChangedException;
+import com.example.shoppingcart.model.CartItem;
+import com.example.shoppingcart.model.ExportFormat;
+import com.example.shoppingcart.model.Product;
+import com.example.shoppingcart.model.ProductImportResult;
+import com.example.shoppingcart.model.User;
+import com.example.shoppingcart.repository.ProductRepository;
+import com.example.shoppingcart.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Stock is reserved by a conditional UPDATE at checkout: concurrent checkouts never sell more
+// than there is, cached products see the new stock, and edits or imports made from an older
+// version of the product are rejected rather than writing the old stock back. A checkout at a
+// price other than the one the cart showed is rejected. An API update that leaves stock out
+// keeps it.
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class StockReservationTest {
+
+    private static final int STOCK = 50;
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS = 200;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductBulkService productBulkService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private User customer;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        String name = "stock-" + UUID.randomUUID();
+        customer = new User();
+        customer.setUsername(name);
+        customer.setPassword("unused");
+        customer.setRole("ROLE_USER");
+        customer = userRepository.save(customer);
+        product = productRepository.save(new Product(name, "P", 10, null, STOCK));
+    }
+
+    @Test
+    void concurrentCheckoutsNeverOversell() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Callable<Boolean>> checkouts = new ArrayList<>();
+        for (int i = 0; i < ATTEMPTS; i++) {
+            checkouts.add(() -> {
+                try {
+                    orderService.createOrder(customer, List.of(new CartItem(product, 1)));
+                    return true;
+                } catch (InsufficientStockException e) {
+                    return false;
+                }
+            });
+        }
+        int sold = 0;
+        try {
+            for (Future<Boolean> checkout : pool.invokeAll(checkouts)) {
+                if (checkout.get()) {
+                    sold++;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(STOCK, sold);
+        assertEquals(0, stockInDatabase());
+        assertEquals(STOCK, jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(quantity), 0) FROM order_items WHERE product_id = ?", Integer.class, product.getId()));
+    }
+
+    @Test
+    void checkoutEvictsTheCachedProduct() {
+        assertEquals(STOCK, productService.getProductById(product.getId()).orElseThrow().getStock());
+
+        orderService.createOrder(customer, List.of(new CartItem(product, 3)));
+
+        assertEquals(STOCK - 3, productService.getProductById(product.getId()).orElseThrow().getStock());
+    }
+
+    @Test
+    void editFromBeforeACheckoutIsRejected() {
+        Product edited = productService.getProductForEdit(product.getId()).orElseThrow();
+        orderService.createOrder(customer, List.of(new CartItem(product, 2)));
+
+        edited.setPrice(12);
+        assertThrows(ConcurrentUpdateException.class, () -> productService.saveProduct(edited));
+        assertEquals(STOCK - 2, stockInDatabase());
+
+        Product reloaded = productService.getProductForEdit(product.getId()).orElseThrow();
+        reloaded.setPrice(12);
+        productService.saveProduct(reloaded);
+        assertEquals(STOCK - 2, stockInDatabase());
+    }
+
+    @Test
+    void checkoutAtAChangedPriceIsRejected() {
+        CartItem shown = new CartItem(productService.getProductById(product.getId()).orElseThrow(), 2);
+        Product repriced = productService.getProductForEdit(product.getId()).orElseThrow();
+        repriced.setPrice(12.5);
+        productService.saveProduct(repriced);
+
+        PriceChangedException e = assertThrows(PriceChangedException.class,
+                () -> orderService.createOrder(customer, List.of(shown)));
+        assertTrue(e.getMessage().contains("$25.00"), e.getMessage());
+        assertEquals(STOCK, stockInDatabase());
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM orders WHERE user_id = ?", Integer.class, customer.getId()));
+    }
+
+    @Test
+    void importOfAnOlderVersionIsRejected() {
+        long exported = productService.getProductForEdit(product.getId()).orElseThrow().getVersion();
+        orderService.createOrder(customer, List.of(new CartItem(product, 1)));
+
+        String row = "{\"id\":" + product.getId() + ",\"name\":\"Renamed\",\"price\":10,\"stock\":" + STOCK
+                + ",\"version\":" + exported + "}\n";
+        ProductImportResult result = productBulkService.importProducts(
+                new ByteArrayInputStream(row.getBytes(StandardCharsets.UTF_8)), ExportFormat.NDJSON);
+
+        assertEquals(0, result.getImported());
+        assertEquals(1, result.getRejected());
+        assertEquals(STOCK - 1, stockInDatabase());
+    }
+
+    @Test
+    void apiUpdateWithoutStockKeepsTheStock() throws Exception {
+        orderService.createOrder(customer, List.of(new CartItem(product, 4)));
+        long version = productService.getProductForEdit(product.getId()).orElseThrow().getVersion();
+
+        mockMvc.perform(put("/api/products/" + product.getId()).with(user("admin").roles("ADMIN")).with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Renamed\",\"price\":11,\"version\":" + version + "}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stock").value(STOCK - 4));
+
+        assertEquals(STOCK - 4, stockInDatabase());
+    }
+
+    private int stockInDatabase() {
+        return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, product.getId());
+    }
+}